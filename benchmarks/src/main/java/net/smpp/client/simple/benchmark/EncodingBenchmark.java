@@ -0,0 +1,83 @@
+package net.smpp.client.simple.benchmark;
+
+import net.smpp.client.simple.domain.EncodingStatus;
+import net.smpp.client.simple.domain.UdhType;
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.utils.TextUtils;
+import net.smpp.client.simple.utils.encoding.CharsetEncoding;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding detection and conversion of whole texts, the way message is prepared before segmentation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodingBenchmark {
+
+    @Param({"GSM", "GSM_EXTENDED", "TURKISH", "LATIN", "UCS2"})
+    private MessageCorpus.Alphabet alphabet;
+
+    @Param({"GSM_0338", "LATIN_ISO8859_1"})
+    private LatinEncodingType latinEncodingType;
+
+    private String[] texts;
+    private byte[] dataCodings;
+    private byte[][] encodedTexts;
+    private CharsetEncoding charsetEncoding;
+    private byte[] buffer;
+    private int index;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        texts = MessageCorpus.texts(alphabet);
+        dataCodings = new byte[texts.length];
+        encodedTexts = new byte[texts.length][];
+        for (int i = 0; i < texts.length; i++) {
+            dataCodings[i] = TextUtils.determineEncodingStatus(texts[i], latinEncodingType);
+            encodedTexts[i] = TextUtils.convertStringToByte(texts[i], dataCodings[i], latinEncodingType);
+        }
+        charsetEncoding = TextUtils.getCharsetEncoding(latinEncodingType);
+        buffer = new byte[4096];
+    }
+
+    @Benchmark
+    public EncodingStatus detectEncoding() {
+        index = MessageCorpus.next(index);
+        return TextUtils.detectEncoding(texts[index], latinEncodingType, UdhType.udh_8bit);
+    }
+
+    @Benchmark
+    public byte determineEncodingStatus() {
+        index = MessageCorpus.next(index);
+        return TextUtils.determineEncodingStatus(texts[index], latinEncodingType);
+    }
+
+    @Benchmark
+    public byte[] convertStringToByte() throws UnsupportedEncodingException {
+        index = MessageCorpus.next(index);
+        return TextUtils.convertStringToByte(texts[index], dataCodings[index], latinEncodingType);
+    }
+
+    @Benchmark
+    public String convertByteToString() throws UnsupportedEncodingException {
+        index = MessageCorpus.next(index);
+        return TextUtils.convertByteToString(encodedTexts[index], dataCodings[index], latinEncodingType);
+    }
+
+    /**
+     * Table lookups only: text is encoded into reused buffer, chars the charset can't encode are replaced.
+     */
+    @Benchmark
+    public long encodeIntoBuffer() {
+        index = MessageCorpus.next(index);
+        String text = texts[index];
+        return charsetEncoding.encode(text, 0, text.length(), buffer, 0, buffer.length);
+    }
+}
@@ -0,0 +1,87 @@
+package net.smpp.client.simple.benchmark;
+
+import java.util.Random;
+
+/**
+ * Texts with lengths distributed like real traffic: mostly codes and short notifications,
+ * fewer 2-3 segment messages and rare long ones. Same seed gives same corpus.
+ */
+public final class MessageCorpus {
+
+    public static final int SIZE = 1024; //power of 2, see #next
+    private static final long SEED = 20_170_101L;
+
+    //upper bound of text length (chars) and its share in percents
+    private static final int[] LENGTHS = {70, 160, 320, 600, 1000};
+    private static final int[] SHARES = {35, 35, 20, 8, 2};
+
+    private static final String GSM_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789          .,:!?-'\"()@&%+=/";
+    private static final String GSM_EXTENDED_CHARS = "{}[]~^|\\€";
+    private static final String TURKISH_CHARS = "çğışöüÇĞİŞ";
+    private static final String LATIN_CHARS = "àáâèéêôûß";
+    private static final String CYRILLIC_CHARS = "абвгдежзиклмнопрстуфхцчшыьяАВМПС";
+
+    public enum Alphabet {
+        //GSM 03.38 default alphabet only
+        GSM(GSM_CHARS, "", 0),
+        //a few chars of GSM extension table, they take escape sequences
+        GSM_EXTENDED(GSM_CHARS, GSM_EXTENDED_CHARS, 3),
+        //turkish letters, fit in 7 bit only with national language tables
+        TURKISH(GSM_CHARS, TURKISH_CHARS, 5),
+        //west european letters, ISO-8859-1 or UCS2 for GSM 03.38
+        LATIN(GSM_CHARS, LATIN_CHARS, 5),
+        //cyrillic text with latin digits and punctuation, always UCS2
+        UCS2(CYRILLIC_CHARS + "0123456789   .,!-", "", 0);
+
+        private final String baseChars;
+        private final String extraChars;
+        private final int extraPercents;
+
+        Alphabet(String baseChars, String extraChars, int extraPercents) {
+            this.baseChars = baseChars;
+            this.extraChars = extraChars;
+            this.extraPercents = extraPercents;
+        }
+    }
+
+    private MessageCorpus() {
+    }
+
+    public static String[] texts(Alphabet alphabet) {
+        Random random = new Random(SEED + alphabet.ordinal());
+        String[] texts = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            texts[i] = text(random, alphabet, nextLength(random));
+        }
+        return texts;
+    }
+
+    /**
+     * Next index of corpus in a cycle.
+     */
+    public static int next(int index) {
+        return (index + 1) & (SIZE - 1);
+    }
+
+    private static int nextLength(Random random) {
+        int share = random.nextInt(100);
+        int lowerBound = 10;
+        for (int i = 0; i < LENGTHS.length; i++) {
+            if (share < SHARES[i]) {
+                return lowerBound + random.nextInt(LENGTHS[i] - lowerBound + 1);
+            }
+            share -= SHARES[i];
+            lowerBound = LENGTHS[i] + 1;
+        }
+        return LENGTHS[LENGTHS.length - 1];
+    }
+
+    private static String text(Random random, Alphabet alphabet, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            String chars = random.nextInt(100) < alphabet.extraPercents ? alphabet.extraChars : alphabet.baseChars;
+            text.append(chars.charAt(random.nextInt(chars.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,100 @@
+package net.smpp.client.simple.benchmark;
+
+import net.smpp.client.simple.domain.DataMessage;
+import net.smpp.client.simple.domain.ServiceType;
+import net.smpp.client.simple.domain.UdhType;
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.service.CompiledMessage;
+import net.smpp.client.simple.service.MessageTemplate;
+import net.smpp.client.simple.utils.TextUtils;
+import org.jsmpp.bean.OptionalParameter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building of submit_sm parameters: full compile of a message, per send cost of compiled message,
+ * per recipient cost of a template and validity period formatting.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PduParametersBenchmark {
+
+    //seconds: default of the form, hour, day, two days and a week
+    private static final int[] VALIDITY_PERIODS = {40, 3_600, 86_400, 172_800, 604_800};
+
+    @Param({"GSM", "UCS2"})
+    private MessageCorpus.Alphabet alphabet;
+
+    @Param({"udh_8bit", "udh_16bit", "tlv"})
+    private UdhType udhType;
+
+    private DataMessage[] dataMessages;
+    private CompiledMessage[] compiledMessages;
+    private MessageTemplate messageTemplate;
+    private String[] texts;
+    private int index;
+    private int ref;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        texts = MessageCorpus.texts(alphabet);
+        dataMessages = new DataMessage[texts.length];
+        compiledMessages = new CompiledMessage[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            dataMessages[i] = dataMessage(texts[i]);
+            compiledMessages[i] = CompiledMessage.compile(dataMessages[i]);
+        }
+        messageTemplate = MessageTemplate.compile(dataMessage(texts[0] + " ${name}, code ${code}. " + texts[1]));
+    }
+
+    @Benchmark
+    public String generateSmsValidityPeriod() {
+        index = MessageCorpus.next(index);
+        return TextUtils.generateSmsValidityPeriod(VALIDITY_PERIODS[index % VALIDITY_PERIODS.length]);
+    }
+
+    /**
+     * Detection, segmentation and pdu fields of a message which is sent once.
+     */
+    @Benchmark
+    public CompiledMessage compileMessage() throws UnsupportedEncodingException {
+        index = MessageCorpus.next(index);
+        return CompiledMessage.compile(dataMessages[index]);
+    }
+
+    /**
+     * What is left per send of a compiled message: segments with patched reference and sar tlv.
+     */
+    @Benchmark
+    public void sendCompiledMessage(Blackhole blackhole) {
+        index = MessageCorpus.next(index);
+        CompiledMessage compiledMessage = compiledMessages[index];
+        ref = (ref + 1) & 0xFFFF;
+        for (int i = 0; i < compiledMessage.getTotalSegments(); i++) {
+            blackhole.consume(compiledMessage.getSegment(i, ref));
+            OptionalParameter[] optionalParameters = compiledMessage.getOptionalParameters(i, ref);
+            blackhole.consume(optionalParameters);
+        }
+    }
+
+    /**
+     * Per recipient cost of a template, only values are encoded.
+     */
+    @Benchmark
+    public CompiledMessage compileTemplate() throws UnsupportedEncodingException {
+        index = MessageCorpus.next(index);
+        return messageTemplate.compile("380000000000", texts[index].substring(0, Math.min(12, texts[index].length())), Integer.toString(index));
+    }
+
+    private DataMessage dataMessage(String text) {
+        return new DataMessage("GMSU", "380000000000", text, udhType, ServiceType.default_type, 40,
+                (byte) 5, (byte) 0, (byte) 1, (byte) 1, LatinEncodingType.GSM_0338, 1, false);
+    }
+}
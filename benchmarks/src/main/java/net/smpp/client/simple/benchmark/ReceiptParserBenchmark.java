@@ -0,0 +1,59 @@
+package net.smpp.client.simple.benchmark;
+
+import net.smpp.client.simple.service.DeliveryReceiptParser;
+import net.smpp.client.simple.service.ParsedReceipt;
+import org.jsmpp.bean.DeliveryReceipt;
+import org.jsmpp.util.InvalidDeliveryReceiptException;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivery receipt parsing: byte level parser into reused receipt against String parsing of jsmpp.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReceiptParserBenchmark {
+
+    private static final String[] RECEIPTS = {
+            "id:0A1B2C3D4E sub:001 dlvrd:001 submit date:2610181230 done date:2610181231 stat:DELIVRD err:000 Text:Your code 4711",
+            "id:1234567890 sub:001 dlvrd:000 submit date:2610181230 done date:2610191230 stat:EXPIRED err:000 Text:",
+            "id:9f3a7c21-55b0-4c1e-8d2a-61e0f4b7a9c3 sub:001 dlvrd:000 submit date:261018123015 done date:261018123016 stat:UNDELIV err:0B1 Text:",
+            "id:77 sub:001 dlvrd:001 submit date:2610181230 done date:2610181230 stat:ENROUTE err:000 Text:Hello"
+    };
+
+    private final DeliveryReceiptParser parser = new DeliveryReceiptParser(TimeZone.getTimeZone("UTC"));
+    private final ParsedReceipt receipt = new ParsedReceipt();
+    private byte[][] shortMessages;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        shortMessages = new byte[RECEIPTS.length][];
+        for (int i = 0; i < RECEIPTS.length; i++) {
+            shortMessages[i] = RECEIPTS[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Benchmark
+    public ParsedReceipt parseBytes() {
+        index = (index + 1) % shortMessages.length;
+        parser.parse(shortMessages[index], null, receipt);
+        return receipt;
+    }
+
+    /**
+     * What DeliverSm.getShortMessageAsDeliveryReceipt() does.
+     */
+    @Benchmark
+    public DeliveryReceipt parseString() throws InvalidDeliveryReceiptException {
+        index = (index + 1) % shortMessages.length;
+        return new DeliveryReceipt(new String(shortMessages[index]));
+    }
+}
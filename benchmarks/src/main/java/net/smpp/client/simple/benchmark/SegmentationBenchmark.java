@@ -0,0 +1,108 @@
+package net.smpp.client.simple.benchmark;
+
+import net.smpp.client.simple.domain.EncodingStatus;
+import net.smpp.client.simple.domain.UdhType;
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.utils.TextUtils;
+import net.smpp.client.simple.utils.encoding.Gsm0338Charset;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.TimeUnit;
+
+import static net.smpp.client.simple.enums.LatinEncodingType.GSM_0338;
+
+/**
+ * Splitting of texts into segments with udh/tlv, GSM 03.38 is used as latin encoding.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SegmentationBenchmark {
+
+    private static final LatinEncodingType LATIN_ENCODING_TYPE = GSM_0338;
+
+    @Param({"GSM", "GSM_EXTENDED", "TURKISH", "UCS2"})
+    private MessageCorpus.Alphabet alphabet;
+
+    @Param({"udh_8bit", "udh_16bit", "tlv", "no_udh"})
+    private UdhType udhType;
+
+    private String[] texts;
+    private EncodingStatus[] encodingStatuses;
+    private byte[][] encodedTexts;
+    private int index;
+    private int ref;
+
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        texts = MessageCorpus.texts(alphabet);
+        encodingStatuses = new EncodingStatus[texts.length];
+        encodedTexts = new byte[texts.length][];
+        for (int i = 0; i < texts.length; i++) {
+            encodingStatuses[i] = TextUtils.detectEncoding(texts[i], LATIN_ENCODING_TYPE, udhType);
+            encodedTexts[i] = encode(texts[i], encodingStatuses[i]);
+        }
+    }
+
+    /**
+     * Segmentation with already detected encoding, text is encoded directly into segments.
+     */
+    @Benchmark
+    public byte[][] segmentsOfMessage() throws UnsupportedEncodingException {
+        index = MessageCorpus.next(index);
+        return TextUtils.getSegmentsOfMessage(texts[index], encodingStatuses[index], udhType, nextRef(), LATIN_ENCODING_TYPE);
+    }
+
+    @Benchmark
+    public byte[][] detectAndSegment() throws UnsupportedEncodingException {
+        index = MessageCorpus.next(index);
+        String text = texts[index];
+        EncodingStatus encodingStatus = TextUtils.detectEncoding(text, LATIN_ENCODING_TYPE, udhType);
+        return TextUtils.getSegmentsOfMessage(text, encodingStatus, udhType, nextRef(), LATIN_ENCODING_TYPE);
+    }
+
+    /**
+     * Splitting of already encoded payload, as done per recipient of a message template.
+     */
+    @Benchmark
+    public byte[][] segmentsOfEncodedMessage() {
+        index = MessageCorpus.next(index);
+        return TextUtils.getSegmentsOfEncodedMessage(encodedTexts[index], encodingStatuses[index], udhType, nextRef(), LATIN_ENCODING_TYPE);
+    }
+
+    /**
+     * Split to strings and encode every part again with udh, the way messages were sent before segmentation in one pass.
+     */
+    @Benchmark
+    public void partsOfMessageAndAddUdh(Blackhole blackhole) throws UnsupportedEncodingException {
+        index = MessageCorpus.next(index);
+        String text = texts[index];
+        byte dataCoding = TextUtils.determineEncodingStatus(text, LATIN_ENCODING_TYPE);
+        String[] parts = TextUtils.getPartsOfMessage(text, LATIN_ENCODING_TYPE);
+        int ref = nextRef();
+        for (int i = 0; i < parts.length; i++) {
+            blackhole.consume(TextUtils.addUdh(parts[i], (byte) (i + 1), (byte) parts.length, ref, dataCoding, udhType, LATIN_ENCODING_TYPE));
+        }
+    }
+
+    private int nextRef() {
+        ref = (ref + 1) & 0xFFFF;
+        return ref;
+    }
+
+    /**
+     * Payload of the whole message without udh, in charset chosen by detection.
+     */
+    private static byte[] encode(String text, EncodingStatus encodingStatus) throws UnsupportedEncodingException {
+        if (encodingStatus.hasNationalLanguage()) {
+            return Gsm0338Charset.forNationalLanguage(encodingStatus.getLockingShift(), encodingStatus.getSingleShift())
+                    .convertStringToBytes(text);
+        }
+        return TextUtils.convertStringToByte(text, encodingStatus.getDataCoding(), LATIN_ENCODING_TYPE);
+    }
+}
@@ -5,28 +5,35 @@ import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyEvent;
+import javafx.stage.FileChooser;
 import net.smpp.client.simple.domain.DataMessage;
+import net.smpp.client.simple.domain.EncodingStatus;
 import net.smpp.client.simple.domain.ServiceType;
+import net.smpp.client.simple.domain.TransliterationResult;
 import net.smpp.client.simple.domain.UdhType;
 import net.smpp.client.simple.enums.LatinEncodingType;
 import net.smpp.client.simple.service.AsyncTask;
-import net.smpp.client.simple.service.MessageSender;
+import net.smpp.client.simple.service.CampaignRunner;
+import net.smpp.client.simple.service.CompiledMessage;
+import net.smpp.client.simple.service.MessageScheduler;
+import net.smpp.client.simple.service.MessageTemplate;
+import net.smpp.client.simple.service.OutboundJournal;
 import net.smpp.client.simple.service.SessionBinder;
 import net.smpp.client.simple.service.Validator;
 import net.smpp.client.simple.utils.TextUtils;
 import org.apache.log4j.Logger;
 import org.jsmpp.bean.BindType;
-import org.jsmpp.session.SMPPSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.io.File;
 
 import static net.smpp.client.simple.domain.ServiceType.*;
 import static net.smpp.client.simple.domain.UdhType.*;
+import static net.smpp.client.simple.enums.MessageLane.TRANSACTIONAL;
 import static net.smpp.client.simple.enums.LatinEncodingType.GSM_0338;
 import static net.smpp.client.simple.enums.LatinEncodingType.LATIN_ISO8859_1;
-import static net.smpp.client.simple.utils.Constants.MAX_MESSAGES_PER_BATCH;
 import static org.jsmpp.bean.BindType.*;
 
 @Component
@@ -34,7 +41,7 @@ public class MainController {
 
     private Logger logger = Logger.getLogger(getClass());
 
-    private final MessageSender messageSender;
+    private final MessageScheduler messageScheduler;
     private final SessionBinder sessionBinder;
     private final Validator validator;
     private Thread asyncTaskSender;
@@ -50,6 +57,8 @@ public class MainController {
     @FXML
     private TextField passwordField;
     @FXML
+    private TextField bindsCountField;
+    @FXML
     private TextField alphaNameField;
     @FXML
     private TextField phoneNumberField;
@@ -83,10 +92,12 @@ public class MainController {
     private ChoiceBox<LatinEncodingType> latinEncodingChoiceBox;
     @FXML
     private TextField countMessagesPerSecondField;
+    @FXML
+    private CheckBox transliterationCheckBox;
 
     @Autowired
-    public MainController(MessageSender messageSender, SessionBinder sessionBinder, Validator validator) {
-        this.messageSender = messageSender;
+    public MainController(MessageScheduler messageScheduler, SessionBinder sessionBinder, Validator validator) {
+        this.messageScheduler = messageScheduler;
         this.sessionBinder = sessionBinder;
         this.validator = validator;
     }
@@ -152,15 +163,26 @@ public class MainController {
             String pass = passwordField.getText();
             String ip = serverIpField.getText();
             Integer port = Integer.valueOf(serverPortField.getText());
+            int bindsCount = Integer.valueOf(bindsCountField.getText());
 
             if (!validator.validateLoginPass(login, pass)) {
                 logger.error("not correct login or password");
                 return;
             }
+            if (!validator.validateBindsCount(bindsCount)) {
+                return;
+            }
 
-            sessionBinder.bindSession(bindType, login, pass, ip, port);
+            sessionBinder.bindSessions(bindType, login, pass, ip, port, bindsCount);
             logger.info("Connected" + System.lineSeparator());
 
+            if (bindType != BIND_RX) {
+                //messages not sent before the last exit, queueing may wait while the lane is full
+                Thread journalReplay = new Thread(messageScheduler::resendJournaled, "journal-replay");
+                journalReplay.setDaemon(true);
+                journalReplay.start();
+            }
+
             connectButton.disableProperty().set(true);
             disconnectButton.disableProperty().set(false);
 
@@ -178,11 +200,9 @@ public class MainController {
 
     @FXML
     public void disconnectButtonPressed(ActionEvent actionEvent) {
-        SMPPSession session = sessionBinder.getSession();
-
         try {
-            if (session != null) {
-                session.unbindAndClose();
+            if (sessionBinder.isBound()) {
+                sessionBinder.unbindSessions();
                 logger.info("Disconnected" + System.lineSeparator());
                 disconnectButton.disableProperty().set(true);
                 sendTextButton.disableProperty().set(true);
@@ -197,7 +217,53 @@ public class MainController {
     @FXML
     public void onLoadStartSend(ActionEvent actionEvent) {
 
-        DataMessage dataMessage = new DataMessage(
+        DataMessage dataMessage = createLoadMessage();
+
+        double countMessagesPerSecond = Double.valueOf(countMessagesPerSecondField.getText());
+
+        if (countMessagesPerSecond <= 0) {
+            logger.error("count messages per second must be positive");
+            return;
+        }
+        if (asyncTaskSender == null) {
+            asyncTaskSender = new AsyncTask(messageScheduler, sessionBinder, dataMessage, countMessagesPerSecond);
+            asyncTaskSender.start();
+        }
+    }
+
+    /**
+     * Text of the message is template for recipients of the chosen CSV file, it is sent at load rate
+     * and stopped by "stop send". Campaign started again on the same file continues where it stopped.
+     */
+    @FXML
+    public void onCampaignStartSend(ActionEvent actionEvent) {
+        if (asyncTaskSender != null) {
+            logger.error("load test or campaign is already running");
+            return;
+        }
+        double countMessagesPerSecond = Double.valueOf(countMessagesPerSecondField.getText());
+        if (countMessagesPerSecond <= 0) {
+            logger.error("count messages per second must be positive");
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Recipients");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv", "*.txt"));
+        File recipientFile = fileChooser.showOpenDialog(enterTextArea.getScene().getWindow());
+        if (recipientFile == null) {
+            return;
+        }
+
+        asyncTaskSender = new CampaignRunner(messageScheduler,
+                MessageTemplate.compile(createLoadMessage()),
+                recipientFile,
+                countMessagesPerSecond);
+        asyncTaskSender.start();
+    }
+
+    private DataMessage createLoadMessage() {
+        return new DataMessage(
                 alphaNameField.getText(),
                 phoneNumberField.getText(),
                 enterTextArea.getText(),
@@ -209,18 +275,9 @@ public class MainController {
                 Byte.valueOf(destAddrTonField.getText()),
                 Byte.valueOf(destAddrNpiField.getText()),
                 latinEncodingChoiceBox.getSelectionModel().getSelectedItem(),
-                1
+                1,
+                transliterationCheckBox.isSelected()
         );
-
-        int countMessagesPerSecond = Integer.valueOf(countMessagesPerSecondField.getText());
-
-        if (countMessagesPerSecond < 1 || countMessagesPerSecond > MAX_MESSAGES_PER_BATCH) {
-            countMessagesPerSecond = MAX_MESSAGES_PER_BATCH;
-        }
-        if (asyncTaskSender == null) {
-            asyncTaskSender = new AsyncTask(messageSender, sessionBinder, dataMessage, countMessagesPerSecond);
-            asyncTaskSender.start();
-        }
     }
 
     @FXML
@@ -269,13 +326,16 @@ public class MainController {
                     destAddrTon,
                     destAddrNpi,
                     latinEncodingType,
-                    registeredDelivery
+                    registeredDelivery,
+                    transliterationCheckBox.isSelected()
             );
 
-            if (sessionBinder.getSession() != null) {
-                messageSender.sendMessage(
-                        sessionBinder.getSession(),
-                        dataMessage);
+            if (sessionBinder.isBound()) {
+                //manual message goes before load test and campaign
+                messageScheduler.enqueue(
+                        CompiledMessage.compile(dataMessage),
+                        TRANSACTIONAL,
+                        OutboundJournal.encode(dataMessage, TRANSACTIONAL));
             } else {
                 logger.error("smpp session not connected");
             }
@@ -291,7 +351,30 @@ public class MainController {
 
     @FXML
     public void textAreaChangedTextAction(KeyEvent keyEvent) {
-        countPartsLabel.setText(String.valueOf(TextUtils.getPartsOfMessage(enterTextArea.getText(), LatinEncodingType.GSM_0338).length));
+        updateCountParts();
+    }
+
+    @FXML
+    public void transliterationChangedAction(ActionEvent actionEvent) {
+        updateCountParts();
+    }
+
+    private void updateCountParts() {
+        String text = enterTextArea.getText();
+        LatinEncodingType latinEncodingType = latinEncodingChoiceBox.getSelectionModel().getSelectedItem();
+        UdhType udhType = udhTypeChoiceBox.getSelectionModel().getSelectedItem();
+
+        if (transliterationCheckBox.isSelected()) {
+            TransliterationResult transliterationResult = TextUtils.transliterate(text, latinEncodingType, udhType);
+            int segmentsBefore = transliterationResult.getSegmentsBefore();
+            int segmentsAfter = transliterationResult.getSegmentsAfter();
+            countPartsLabel.setText(segmentsBefore == segmentsAfter
+                    ? String.valueOf(segmentsAfter)
+                    : segmentsBefore + " -> " + segmentsAfter);
+        } else {
+            EncodingStatus encodingStatus = TextUtils.detectEncoding(text, latinEncodingType, udhType);
+            countPartsLabel.setText(String.valueOf(encodingStatus.getTotalSegments()));
+        }
     }
 
     private void setServerPropertiesDisabled(boolean isDisabled) {
@@ -299,6 +382,7 @@ public class MainController {
         serverPortField.disableProperty().set(isDisabled);
         loginField.disableProperty().set(isDisabled);
         passwordField.disableProperty().set(isDisabled);
+        bindsCountField.disableProperty().set(isDisabled);
         sessionTypeChoiceBox.disableProperty().set(isDisabled);
     }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package net.smpp.client.simple.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * submit_multi_resp of all segments for one group of destinations.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class BroadcastResult {
+    //message_id of every segment in their order
+    private final List<String> messageIds;
+    private final List<String> destinationAddrs;
+    //unsuccess_sme of any segment: destination address and its error status
+    private final Map<String, Integer> unsuccessfulDestinations;
+}
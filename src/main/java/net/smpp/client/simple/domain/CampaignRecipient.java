@@ -0,0 +1,19 @@
+package net.smpp.client.simple.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Line of recipient file: phone, values of template variables and position of the line in the file.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class CampaignRecipient {
+    private final String destinationAddr;
+    private final String[] values;
+    //offsets of the first byte of the line and of the next line
+    private final long offset;
+    private final long endOffset;
+}
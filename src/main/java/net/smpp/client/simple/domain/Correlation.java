@@ -0,0 +1,19 @@
+package net.smpp.client.simple.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Sent segment which delivery receipt refers to.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class Correlation {
+    //reference of the message given by the client, the same for all its segments
+    private final long reference;
+    //epoch millis
+    private final long submitTime;
+    private final int segmentIndex;
+}
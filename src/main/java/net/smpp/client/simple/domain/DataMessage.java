@@ -24,4 +24,5 @@ public class DataMessage {
     private Byte destAddrNpi;
     private LatinEncodingType latinEncodingType;
     private int registeredDelivery;
+    private boolean transliteration;
 }
@@ -0,0 +1,26 @@
+package net.smpp.client.simple.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import net.smpp.client.simple.utils.encoding.GsmNationalLanguage;
+
+/**
+ * Result of encoding detection: data_coding, length of encoded text
+ * (septets for GSM 03.38, octets for latin and UCS2), count of segments
+ * and national language shift tables chosen for GSM 03.38, null for default tables.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class EncodingStatus {
+    private final byte dataCoding;
+    private final int encodedLength;
+    private final int totalSegments;
+    private final GsmNationalLanguage lockingShift;
+    private final GsmNationalLanguage singleShift;
+
+    public boolean hasNationalLanguage() {
+        return lockingShift != null || singleShift != null;
+    }
+}
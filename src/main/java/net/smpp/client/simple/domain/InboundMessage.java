@@ -0,0 +1,20 @@
+package net.smpp.client.simple.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Mobile originated message, all its segments are joined and decoded.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class InboundMessage {
+    private final String sourceAddr;
+    private final String destAddress;
+    private final String text;
+    private final int totalSegments;
+    //epoch millis of the last segment
+    private final long receivedTime;
+}
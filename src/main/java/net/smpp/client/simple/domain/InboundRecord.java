@@ -0,0 +1,33 @@
+package net.smpp.client.simple.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import net.smpp.client.simple.enums.InboundType;
+import net.smpp.client.simple.enums.MessageState;
+
+/**
+ * Delivery receipt or mobile originated message kept in the inbound archive.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class InboundRecord {
+    private final InboundType type;
+    //epoch millis
+    private final long receivedTime;
+    //id of the sent message for receipt, empty for mobile originated message
+    private final String messageId;
+    //address of the subscriber, destination of the sent message for receipt
+    private final String sourceAddr;
+    private final String destAddress;
+    //null for mobile originated message or if not given
+    private final MessageState state;
+    private final int error;
+    //epoch millis, Long.MIN_VALUE if not given
+    private final long doneDate;
+    //reference of the sent message, -1 if not known
+    private final long reference;
+    //empty for receipt
+    private final String text;
+}
@@ -0,0 +1,19 @@
+package net.smpp.client.simple.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * submit_sm_resp of one segment.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class SubmitResult {
+    private final String messageId;
+    private final String destinationAddr;
+    private final int segmentNumber;
+    private final int totalSegments;
+    private final long responseTimeMillis;
+}
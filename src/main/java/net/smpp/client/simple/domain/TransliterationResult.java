@@ -0,0 +1,21 @@
+package net.smpp.client.simple.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Transliterated text with its encoding detection and count of segments the original text would take.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class TransliterationResult {
+    private final String text;
+    private final EncodingStatus encodingStatus;
+    private final int segmentsBefore;
+
+    public int getSegmentsAfter() {
+        return encodingStatus.getTotalSegments();
+    }
+}
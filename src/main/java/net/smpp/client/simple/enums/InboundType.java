@@ -0,0 +1,10 @@
+package net.smpp.client.simple.enums;
+
+/**
+ * Kind of received deliver_sm in the archive.
+ */
+public enum InboundType {
+	RECEIPT,
+	//mobile originated message, all segments joined
+	MESSAGE
+}
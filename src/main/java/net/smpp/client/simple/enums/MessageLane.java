@@ -0,0 +1,27 @@
+package net.smpp.client.simple.enums;
+
+import lombok.Getter;
+
+/**
+ * Queue of the message scheduler. Weight is share of the lane in sending when several lanes have messages,
+ * transactional lane has no weight, it is sent first whenever it has messages.
+ */
+@Getter
+public enum MessageLane {
+	//one-time passwords and other time-critical messages
+	TRANSACTIONAL(0),
+	HIGH(8),
+	NORMAL(4),
+	//campaigns and load tests
+	BULK(1);
+
+	private int weight;
+
+	MessageLane(int weight) {
+		this.weight = weight;
+	}
+
+	public boolean isStrictPriority() {
+		return weight == 0;
+	}
+}
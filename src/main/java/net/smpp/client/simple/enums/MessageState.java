@@ -0,0 +1,50 @@
+package net.smpp.client.simple.enums;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * State of submitted message: value of message_state TLV and "stat:" text of delivery receipt.
+ */
+@Getter
+public enum MessageState {
+	ENROUTE(1, "ENROUTE"),
+	DELIVERED(2, "DELIVRD"),
+	EXPIRED(3, "EXPIRED"),
+	DELETED(4, "DELETED"),
+	UNDELIVERABLE(5, "UNDELIV"),
+	ACCEPTED(6, "ACCEPTD"),
+	UNKNOWN(7, "UNKNOWN"),
+	REJECTED(8, "REJECTD");
+
+	private static final MessageState[] BY_CODE = new MessageState[values().length + 1];
+
+	static {
+		for (MessageState state : values()) {
+			BY_CODE[state.code] = state;
+		}
+	}
+
+	private int code;
+	private byte[] stat;
+
+	/**
+	 * @return null for unknown code
+	 */
+	public static MessageState getStateByCode(int code) {
+		return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+	}
+
+	MessageState(int code, String stat) {
+		this.code = code;
+		this.stat = stat.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Final state, no more receipts are expected for the message.
+	 */
+	public boolean isFinal() {
+		return this != ENROUTE;
+	}
+}
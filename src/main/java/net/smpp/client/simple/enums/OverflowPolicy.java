@@ -0,0 +1,13 @@
+package net.smpp.client.simple.enums;
+
+/**
+ * What is done with deliver_sm when ring buffer of the processing thread is full.
+ */
+public enum OverflowPolicy {
+	//deliver_sm_resp with ESME_RX_T_APPN, SMSC sends deliver_sm again later
+	REJECT,
+	//session thread waits for free slot, deliver_sm_resp is delayed
+	BLOCK,
+	//deliver_sm_resp is OK and deliver_sm is lost, only counted
+	DROP
+}
@@ -0,0 +1,11 @@
+package net.smpp.client.simple.enums;
+
+/**
+ * How bind of the session pool is chosen for the next message.
+ */
+public enum SessionSelection {
+	//binds in turn
+	ROUND_ROBIN,
+	//bind with the least submit_sm waiting for response, ties are broken in turn
+	LEAST_OUTSTANDING
+}
@@ -0,0 +1,15 @@
+package net.smpp.client.simple.enums;
+
+/**
+ * How thread processing deliver_sm waits while its ring buffer is empty.
+ */
+public enum WaitStrategy {
+	//parks until producer wakes it up, lowest CPU, producer pays an unpark
+	BLOCKING,
+	//parks for a short fixed time
+	SLEEPING,
+	//gives up the CPU to other threads
+	YIELDING,
+	//spins, lowest latency, takes a core
+	BUSY_SPIN
+}
@@ -0,0 +1,97 @@
+package net.smpp.client.simple.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.LongConsumer;
+
+/**
+ * Hash multimap of long key to file offsets for {@link InboundArchive}. The table is the index file as is:
+ * entries [key][offset + 1] with linear probing, 0 marks a free slot, one key may have many entries.
+ * Index of the open partition grows in memory, index of a closed partition is mapped from its file.
+ */
+class ArchiveIndex {
+
+    private static final int ENTRY_SIZE = 16;
+    private static final int INITIAL_SLOTS = 1024;
+    //table of 1 GB, offsets in it still fit in int
+    private static final int MAX_SLOTS = 1 << 26;
+    //load is kept at a half at most
+    static final int MAX_ENTRIES = MAX_SLOTS / 2;
+
+    private ByteBuffer table;
+    private int mask;
+    private int size;
+
+    ArchiveIndex() {
+        this(ByteBuffer.allocate(INITIAL_SLOTS * ENTRY_SIZE));
+    }
+
+    /**
+     * @param table entries of a written index, its size is a power of 2 entries
+     */
+    ArchiveIndex(ByteBuffer table) {
+        this.table = table;
+        this.mask = table.capacity() / ENTRY_SIZE - 1;
+    }
+
+    /**
+     * @throws IllegalStateException if index has {@link #MAX_ENTRIES} already
+     */
+    void put(long key, long offset) {
+        if (size >= MAX_ENTRIES) {
+            throw new IllegalStateException("archive index is full, " + size + " entries");
+        }
+        if ((size + 1) * 2 > mask + 1) {
+            grow();
+        }
+        insert(table, mask, key, offset + 1);
+        size++;
+    }
+
+    void find(long key, LongConsumer offsets) {
+        for (int slot = home(key, mask); ; slot = (slot + 1) & mask) {
+            long value = table.getLong(slot * ENTRY_SIZE + Long.BYTES);
+            if (value == 0) {
+                return;
+            }
+            if (table.getLong(slot * ENTRY_SIZE) == key) {
+                offsets.accept(value - 1);
+            }
+        }
+    }
+
+    void writeTo(FileChannel channel) throws IOException {
+        ByteBuffer buffer = table.duplicate();
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void grow() {
+        int slots = (mask + 1) * 2;
+        ByteBuffer grown = ByteBuffer.allocate(slots * ENTRY_SIZE);
+        for (int slot = 0; slot <= mask; slot++) {
+            long value = table.getLong(slot * ENTRY_SIZE + Long.BYTES);
+            if (value != 0) {
+                insert(grown, slots - 1, table.getLong(slot * ENTRY_SIZE), value);
+            }
+        }
+        table = grown;
+        mask = slots - 1;
+    }
+
+    private static void insert(ByteBuffer table, int mask, long key, long value) {
+        int slot = home(key, mask);
+        while (table.getLong(slot * ENTRY_SIZE + Long.BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putLong(slot * ENTRY_SIZE, key);
+        table.putLong(slot * ENTRY_SIZE + Long.BYTES, value);
+    }
+
+    private static int home(long key, int mask) {
+        return (int) CorrelationStore.mix(key) & mask;
+    }
+}
@@ -1,45 +1,75 @@
 package net.smpp.client.simple.service;
 
 import net.smpp.client.simple.domain.DataMessage;
-import org.apache.commons.lang.exception.ExceptionUtils;
+import net.smpp.client.simple.enums.MessageLane;
+import net.smpp.client.simple.utils.RateLimiter;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test: sends the same message with even spacing at the given rate until interrupted.
+ * Messages go through the bulk lane of {@link MessageScheduler}, so they don't delay transactional ones.
+ */
 public class AsyncTask extends Thread {
 
+    private static final long LOG_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    //late wakeups of the thread are caught up within this time, so the real rate doesn't drift below the target
+    private static final double CATCH_UP_SECONDS = 0.01;
+
     private Logger logger = Logger.getLogger(getClass());
 
-    private MessageSender messageSender;
+    private MessageScheduler messageScheduler;
     private SessionBinder sessionBinder;
     private DataMessage dataMessage;
-    private int countMessages;
+    private RateLimiter rateLimiter;
 
-    public AsyncTask(MessageSender messageSender, SessionBinder sessionBinder, DataMessage dataMessage, int countMessages) {
-        this.messageSender = messageSender;
+    public AsyncTask(MessageScheduler messageScheduler, SessionBinder sessionBinder, DataMessage dataMessage, double messagesPerSecond) {
+        this.messageScheduler = messageScheduler;
         this.sessionBinder = sessionBinder;
         this.dataMessage = dataMessage;
-        this.countMessages = countMessages;
+        this.rateLimiter = new RateLimiter(messagesPerSecond, Math.max(1, (int) (messagesPerSecond * CATCH_UP_SECONDS)));
     }
 
     @Override
     public void run() {
-        while (!Thread.currentThread().isInterrupted()) {
-            for (int i = 0; i < countMessages; i++) {
-                if (sessionBinder.getSession() != null) {
-                    messageSender.sendMessage(
-                            sessionBinder.getSession(),
-                            dataMessage);
-                } else {
-                    logger.error("smpp session not connected");
-                }
-            }
-            logger.info(String.format("send batch: %s messages", countMessages));
+        //encoding, segments and pdu fields are the same for every message of the load
+        CompiledMessage compiledMessage;
+        byte[] journalRecord = OutboundJournal.encode(dataMessage, MessageLane.BULK);
+        try {
+            compiledMessage = CompiledMessage.compile(dataMessage);
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+            return;
+        }
+
+        int sentMessages = 0;
+        long logTime = System.nanoTime() + LOG_INTERVAL;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                rateLimiter.acquire();
 
-            try {
-                sleep(1000);
-            } catch (InterruptedException e) {
-                logger.error(ExceptionUtils.getStackTrace(e));
-                interrupt();
+                messageScheduler.enqueue(compiledMessage, MessageLane.BULK, journalRecord);
+                sentMessages++;
+
+                if (System.nanoTime() - logTime >= 0) {
+                    RetryScheduler retryScheduler = sessionBinder.getRetryScheduler();
+                    logger.info(String.format("queued %s messages, rate %s per second, in bulk lane %s, expired %s, "
+                                    + "retries %s (pending %s), gave up %s, permanent failures %s, throttled %s (expired %s)",
+                            sentMessages, rateLimiter.getRate(), messageScheduler.getQueued(MessageLane.BULK), messageScheduler.getExpired(),
+                            retryScheduler.getRetries(), retryScheduler.getPending(),
+                            retryScheduler.getGiveUps(), retryScheduler.getPermanentFailures(),
+                            retryScheduler.getRequeues(), retryScheduler.getExpired()));
+                    sentMessages = 0;
+                    logTime += LOG_INTERVAL;
+                }
             }
+        } catch (InterruptedException e) {
+            logger.info("load test stopped");
+            interrupt();
+        } catch (IOException e) {
+            logger.error("load test stopped, journal failed: " + e.getMessage(), e);
         }
     }
 }
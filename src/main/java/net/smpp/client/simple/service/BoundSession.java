@@ -0,0 +1,215 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.SubmitResult;
+import net.smpp.client.simple.utils.RateLimiter;
+import org.apache.log4j.Logger;
+import org.jsmpp.bean.Address;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.SubmitMultiResult;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static net.smpp.client.simple.utils.Constants.BIND_FAILURES_TO_PAUSE;
+import static net.smpp.client.simple.utils.Constants.BIND_PAUSE;
+
+/**
+ * One bind of the session pool with its own submit window.
+ * Bind is healthy while it can transmit and submit_sm get responses. After several submit_sm in a row
+ * failed without response (timeout, broken connection) it is paused and gets traffic again after the pause.
+ * Negative responses are answers of SMSC about the message and don't count.
+ * <p>
+ * Every submit_sm takes permit of the account (all binds of the pool) and of the bind itself.
+ * Rate and window of the bind follow {@link CongestionController}, segments failed for a transient reason
+ * are sent again by {@link RetryScheduler}. Throttled segments don't take attempts, they are sent again
+ * over this bind at the lowered rate until validity period of the message ends. After timeout or broken
+ * connection the next attempt goes to a healthy bind of the pool, only segments of a concatenated message
+ * stay on this bind while it is alive.
+ */
+public class BoundSession {
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final int number;
+    private final SMPPSession session;
+    private final SubmitWindow submitWindow;
+    private final RateLimiter rateLimiter;
+    private final RateLimiter accountRateLimiter;
+    private final CongestionController congestionController;
+    private final RetryScheduler retryScheduler;
+    private final Supplier<BoundSession> sessionSelector;
+    private final ConcatReferenceAllocator referenceAllocator = new ConcatReferenceAllocator();
+    private final AtomicInteger failuresInRow = new AtomicInteger();
+    private volatile long pausedUntil;
+
+    public BoundSession(int number,
+                        SMPPSession session,
+                        SubmitWindow submitWindow,
+                        RateLimiter rateLimiter,
+                        RateLimiter accountRateLimiter,
+                        double maxRate,
+                        RetryScheduler retryScheduler,
+                        Supplier<BoundSession> sessionSelector) {
+        this.number = number;
+        this.session = session;
+        this.submitWindow = submitWindow;
+        this.rateLimiter = rateLimiter;
+        this.accountRateLimiter = accountRateLimiter;
+        this.congestionController = new CongestionController(number, rateLimiter, submitWindow, maxRate);
+        this.retryScheduler = retryScheduler;
+        this.sessionSelector = sessionSelector;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public SMPPSession getSession() {
+        return session;
+    }
+
+    public SubmitWindow getSubmitWindow() {
+        return submitWindow;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public ConcatReferenceAllocator getReferenceAllocator() {
+        return referenceAllocator;
+    }
+
+    public boolean isHealthy() {
+        return session.getSessionState().isTransmittable() && System.currentTimeMillis() >= pausedUntil;
+    }
+
+    /**
+     * Waits for permits of rate limits, then sends segment through the window of this bind,
+     * see {@link SubmitWindow#submit(CompiledMessage, int, int)}.
+     *
+     * @return future of the final response, after retries of the segment
+     */
+    public CompletableFuture<SubmitResult> submit(CompiledMessage compiledMessage, int index, int ref) throws InterruptedException {
+        CompletableFuture<SubmitResult> future = new CompletableFuture<>();
+        submit(compiledMessage, index, ref, 1, getDeadline(compiledMessage), future);
+        return future;
+    }
+
+    /**
+     * @param deadline System.nanoTime() when validity period of the message ends, 0 - no end
+     */
+    private void submit(CompiledMessage compiledMessage,
+                        int index,
+                        int ref,
+                        int attempt,
+                        long deadline,
+                        CompletableFuture<SubmitResult> future) throws InterruptedException {
+        accountRateLimiter.acquire();
+        rateLimiter.acquire();
+        submitWindow.submit(compiledMessage, index, ref).whenComplete((result, e) -> {
+            updateHealth(e);
+            if (e == null) {
+                congestionController.onResponse(result.getResponseTimeMillis());
+                future.complete(result);
+                return;
+            }
+            String description = String.format("bind %s, segment %s of %s to %s",
+                    number, index + 1, compiledMessage.getTotalSegments(), compiledMessage.getDestinationAddr());
+            //worker threads of the window must not wait for permits, the next attempt is sent by retry thread
+            boolean retried;
+            if (CongestionController.isThrottled(e)) {
+                congestionController.onThrottled(e);
+                retried = retryScheduler.requeue(description, deadline, e,
+                        () -> resubmit(compiledMessage, index, ref, attempt, deadline, future));
+            } else {
+                retried = retryScheduler.retry(description, attempt, e, () -> getRetrySession(compiledMessage, e)
+                        .resubmit(compiledMessage, index, ref, attempt + 1, deadline, future));
+            }
+            if (!retried) {
+                future.completeExceptionally(e);
+            }
+        });
+    }
+
+    private void resubmit(CompiledMessage compiledMessage,
+                          int index,
+                          int ref,
+                          int attempt,
+                          long deadline,
+                          CompletableFuture<SubmitResult> future) {
+        try {
+            submit(compiledMessage, index, ref, attempt, deadline, future);
+        } catch (InterruptedException interrupted) {
+            future.completeExceptionally(interrupted);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bind for the next attempt of a failed segment, chosen when the attempt is due.
+     * Segments of a concatenated message keep this bind while it is alive, errors of SMSC keep it too.
+     * After timeout or broken connection a healthy bind is taken from the pool, this one if there is none.
+     */
+    private BoundSession getRetrySession(CompiledMessage compiledMessage, Throwable e) {
+        boolean alive = session.getSessionState().isTransmittable();
+        boolean connectionFailed = e instanceof ResponseTimeoutException || e instanceof IOException;
+        if (alive && (compiledMessage.getTotalSegments() > 1 || !connectionFailed)) {
+            return this;
+        }
+        BoundSession selected = sessionSelector.get();
+        return selected != null ? selected : this;
+    }
+
+    /**
+     * Validity period counts from the first attempt, as SMSC counts relative validity from submit_sm.
+     */
+    private static long getDeadline(CompiledMessage compiledMessage) {
+        if (compiledMessage.getValidityPeriodSeconds() <= 0) {
+            return 0;
+        }
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(compiledMessage.getValidityPeriodSeconds());
+    }
+
+    /**
+     * Waits for permits of rate limits, then sends segment to destinations by one submit_multi,
+     * see {@link SubmitWindow#submitMulti(CompiledMessage, Address[], int, int)}. submit_multi is not retried,
+     * transient failure would send the segment again to destinations which already got it.
+     */
+    public CompletableFuture<SubmitMultiResult> submitMulti(CompiledMessage compiledMessage,
+                                                            Address[] destinations,
+                                                            int index,
+                                                            int ref) throws InterruptedException {
+        accountRateLimiter.acquire();
+        rateLimiter.acquire();
+        CompletableFuture<SubmitMultiResult> future = submitWindow.submitMulti(compiledMessage, destinations, index, ref);
+        future.whenComplete((result, e) -> {
+            updateHealth(e);
+            if (CongestionController.isThrottled(e)) {
+                congestionController.onThrottled(e);
+            }
+        });
+        return future;
+    }
+
+    private void updateHealth(Throwable e) {
+        if (e == null || e instanceof NegativeResponseException) {
+            failuresInRow.set(0);
+        } else if (failuresInRow.incrementAndGet() >= BIND_FAILURES_TO_PAUSE) {
+            failuresInRow.set(0);
+            pausedUntil = System.currentTimeMillis() + BIND_PAUSE;
+            logger.warn(String.format("bind %s paused for %s ms after %s failed submits: %s",
+                    number, BIND_PAUSE, BIND_FAILURES_TO_PAUSE, e.getMessage()));
+        }
+    }
+
+    public void close() {
+        submitWindow.close();
+        session.unbindAndClose();
+    }
+}
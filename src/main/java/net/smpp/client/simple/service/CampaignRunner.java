@@ -0,0 +1,190 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.CampaignRecipient;
+import net.smpp.client.simple.enums.MessageLane;
+import net.smpp.client.simple.utils.RateLimiter;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Campaign: message template sent to every recipient of CSV file (see {@link RecipientFileReader}) at the given rate.
+ * <p>
+ * Reader thread parses the file into a bounded queue, so reading waits while sending is behind.
+ * Once per second offset of the first line which is not completed yet is written to checkpoint file
+ * next to the recipient file, campaign started again on the same file continues from it.
+ * Recipient is completed when all segments got final responses, after retries, or expired in the bulk lane
+ * of {@link MessageScheduler}.
+ */
+public class CampaignRunner extends Thread {
+
+    private static final int QUEUE_CAPACITY = 10000;
+    private static final long CHECKPOINT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final double CATCH_UP_SECONDS = 0.01;
+    //end of the file for the sending thread
+    private static final CampaignRecipient END = new CampaignRecipient(null, null, -1, -1);
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final MessageScheduler messageScheduler;
+    private final MessageTemplate template;
+    private final File recipientFile;
+    private final Path checkpointFile;
+    private final RateLimiter rateLimiter;
+    private final BlockingQueue<CampaignRecipient> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    //offsets of recipients which are sent and not completed
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    //end of the last recipient taken for sending
+    private volatile long dispatchedOffset;
+    private volatile boolean readFailed;
+
+    public CampaignRunner(MessageScheduler messageScheduler,
+                          MessageTemplate template,
+                          File recipientFile,
+                          double messagesPerSecond) {
+        super("campaign");
+        this.messageScheduler = messageScheduler;
+        this.template = template;
+        this.recipientFile = recipientFile;
+        this.checkpointFile = new File(recipientFile.getPath() + CHECKPOINT_SUFFIX).toPath();
+        this.rateLimiter = new RateLimiter(messagesPerSecond, Math.max(1, (int) (messagesPerSecond * CATCH_UP_SECONDS)));
+    }
+
+    @Override
+    public void run() {
+        long startOffset = readCheckpoint();
+        RecipientFileReader reader;
+        try {
+            reader = new RecipientFileReader(recipientFile, template.getVariableNames(), startOffset);
+            logger.info(String.format("campaign %s started from offset %s of %s, columns %s",
+                    recipientFile, startOffset, reader.getSize(), reader.getColumns()));
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            return;
+        }
+        dispatchedOffset = startOffset;
+
+        Thread readerThread = new Thread(() -> read(reader), "campaign-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        long checkpointTime = System.nanoTime() + CHECKPOINT_INTERVAL;
+        try {
+            CampaignRecipient recipient;
+            while ((recipient = queue.take()) != END) {
+                send(recipient);
+                if (System.nanoTime() - checkpointTime >= 0) {
+                    checkpoint();
+                    checkpointTime += CHECKPOINT_INTERVAL;
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                TimeUnit.MILLISECONDS.sleep(100);
+            }
+            checkpoint();
+            logger.info(String.format("campaign %s %s", recipientFile, readFailed ? "stopped, file is not read" : "finished"));
+        } catch (InterruptedException e) {
+            checkpoint();
+            logger.info(String.format("campaign %s stopped", recipientFile));
+            interrupt();
+        } finally {
+            readerThread.interrupt();
+        }
+    }
+
+    private void read(RecipientFileReader reader) {
+        try (RecipientFileReader fileReader = reader) {
+            CampaignRecipient recipient;
+            while ((recipient = fileReader.next()) != null) {
+                queue.put(recipient);
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (IOException e) {
+            readFailed = true;
+            logger.error(e.getMessage(), e);
+        }
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(CampaignRecipient recipient) throws InterruptedException {
+        CompiledMessage compiledMessage;
+        try {
+            compiledMessage = template.compile(recipient.getDestinationAddr(), recipient.getValues());
+        } catch (Exception e) {
+            logger.error(String.format("recipient %s skipped: %s", recipient.getDestinationAddr(), e.getMessage()), e);
+            failed.increment();
+            dispatchedOffset = recipient.getEndOffset();
+            return;
+        }
+
+        rateLimiter.acquire();
+        inFlight.add(recipient.getOffset());
+        dispatchedOffset = recipient.getEndOffset();
+        try {
+            messageScheduler.enqueue(compiledMessage, MessageLane.BULK, null).whenComplete((result, e) -> {
+                if (e == null) {
+                    completed.increment();
+                } else {
+                    failed.increment();
+                }
+                inFlight.remove(recipient.getOffset());
+            });
+        } catch (IOException e) {
+            //not journaled, can't happen
+            failed.increment();
+            inFlight.remove(recipient.getOffset());
+        }
+    }
+
+    /**
+     * Lines before the first recipient in flight are completed.
+     */
+    private long getCheckpoint() {
+        long offset = dispatchedOffset;
+        Long firstInFlight = inFlight.ceiling(Long.MIN_VALUE);
+        return firstInFlight == null ? offset : Math.min(firstInFlight, offset);
+    }
+
+    private void checkpoint() {
+        long offset = getCheckpoint();
+        Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            Files.write(temporaryFile, Long.toString(offset).getBytes(StandardCharsets.US_ASCII));
+            Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("campaign checkpoint is not written: " + e.getMessage(), e);
+        }
+        logger.info(String.format("campaign %s: offset %s, completed %s, failed %s, in flight %s, queued %s",
+                recipientFile, offset, completed.sum(), failed.sum(), inFlight.size(), queue.size()));
+    }
+
+    private long readCheckpoint() {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(checkpointFile), StandardCharsets.US_ASCII).trim());
+        } catch (IOException | NumberFormatException e) {
+            logger.error("campaign checkpoint is not read, campaign starts from the beginning: " + e.getMessage(), e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package net.smpp.client.simple.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.smpp.client.simple.domain.DataMessage;
+import net.smpp.client.simple.domain.EncodingStatus;
+import net.smpp.client.simple.domain.TransliterationResult;
+import net.smpp.client.simple.domain.UdhType;
+import net.smpp.client.simple.utils.TextUtils;
+import org.apache.log4j.Logger;
+import org.jsmpp.bean.*;
+
+import java.io.UnsupportedEncodingException;
+
+import static net.smpp.client.simple.domain.UdhType.*;
+import static org.jsmpp.SMPPConstant.ESMCLS_DEFAULT_MODE;
+import static org.jsmpp.SMPPConstant.ESMCLS_UDHI_INDICATOR_SET;
+import static org.jsmpp.bean.SMSCDeliveryReceipt.DEFAULT;
+import static org.jsmpp.bean.SMSCDeliveryReceipt.SUCCESS_FAILURE;
+
+/**
+ * Immutable submit_sm parameters and encoded segments of {@link DataMessage}, built once for repeated sends.
+ * Only concatenation reference number differs between sends, it is patched into a copy of the segment.
+ */
+@Getter
+public final class CompiledMessage {
+
+    private static final Logger LOGGER = Logger.getLogger(CompiledMessage.class);
+    private static final OptionalParameter[] NO_OPTIONAL_PARAMETERS = new OptionalParameter[0];
+
+    private final String serviceType;
+    private final TypeOfNumber sourceAddrTon;
+    private final NumberingPlanIndicator sourceAddrNpi;
+    private final String sourceAddr;
+    private final TypeOfNumber destAddrTon;
+    private final NumberingPlanIndicator destAddrNpi;
+    private final String destinationAddr;
+    private final ESMClass esmClass;
+    private final String validityPeriod;
+    //0 - default validity of SMSC
+    private final int validityPeriodSeconds;
+    private final RegisteredDelivery registeredDelivery;
+    private final DataCoding dataCoding;
+    private final UdhType udhType;
+    private final EncodingStatus encodingStatus;
+
+    @Getter(AccessLevel.NONE)
+    private final byte[][] segments;
+    @Getter(AccessLevel.NONE)
+    private final OptionalParameter sarTotalSegments;
+    @Getter(AccessLevel.NONE)
+    private final OptionalParameter[] sarSegmentSeqnums;
+
+    private CompiledMessage(DataMessage dataMessage, EncodingStatus encodingStatus, byte[][] segments) {
+        this.serviceType = dataMessage.getServiceType().getStatus();
+        this.sourceAddrTon = TypeOfNumber.valueOf(dataMessage.getSourceAddrTon());
+        this.sourceAddrNpi = NumberingPlanIndicator.valueOf(dataMessage.getSourceAddrNpi());
+        this.sourceAddr = dataMessage.getAlphaName();
+        this.destAddrTon = TypeOfNumber.valueOf(dataMessage.getDestAddrTon());
+        this.destAddrNpi = NumberingPlanIndicator.valueOf(dataMessage.getDestAddrNpi());
+        this.destinationAddr = dataMessage.getPhone();
+        this.udhType = dataMessage.getUdhType();
+        this.esmClass = getEsmClass(udhType, segments.length, encodingStatus);
+        this.validityPeriod = TextUtils.generateSmsValidityPeriod(dataMessage.getValidityPeriod());
+        this.validityPeriodSeconds = dataMessage.getValidityPeriod();
+        this.registeredDelivery = new RegisteredDelivery(dataMessage.getRegisteredDelivery() == 1 ? SUCCESS_FAILURE : DEFAULT);
+        this.dataCoding = DataCodings.newInstance(encodingStatus.getDataCoding());
+        this.encodingStatus = encodingStatus;
+
+        this.segments = segments;
+        this.sarTotalSegments = OptionalParameters.newSarTotalSegments(segments.length);
+        this.sarSegmentSeqnums = new OptionalParameter[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            sarSegmentSeqnums[i] = OptionalParameters.newSarSegmentSeqnum(i + 1);
+        }
+    }
+
+    private CompiledMessage(CompiledMessage template, String destinationAddr, EncodingStatus encodingStatus, byte[][] segments) {
+        this.serviceType = template.serviceType;
+        this.sourceAddrTon = template.sourceAddrTon;
+        this.sourceAddrNpi = template.sourceAddrNpi;
+        this.sourceAddr = template.sourceAddr;
+        this.destAddrTon = template.destAddrTon;
+        this.destAddrNpi = template.destAddrNpi;
+        this.destinationAddr = destinationAddr;
+        this.udhType = template.udhType;
+        this.esmClass = getEsmClass(udhType, segments.length, encodingStatus);
+        this.validityPeriod = template.validityPeriod;
+        this.validityPeriodSeconds = template.validityPeriodSeconds;
+        this.registeredDelivery = template.registeredDelivery;
+        this.dataCoding = encodingStatus.getDataCoding() == template.encodingStatus.getDataCoding()
+                ? template.dataCoding
+                : DataCodings.newInstance(encodingStatus.getDataCoding());
+        this.encodingStatus = encodingStatus;
+
+        this.segments = segments;
+        this.sarTotalSegments = OptionalParameters.newSarTotalSegments(segments.length);
+        this.sarSegmentSeqnums = new OptionalParameter[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            sarSegmentSeqnums[i] = OptionalParameters.newSarSegmentSeqnum(i + 1);
+        }
+    }
+
+    /**
+     * Detects encoding (with transliteration if message asks for it) and encodes segments.
+     * Segments get concatenation udh with reference 0, see {@link #getSegment(int, int)}.
+     */
+    public static CompiledMessage compile(DataMessage dataMessage) throws UnsupportedEncodingException {
+        UdhType udhType = dataMessage.getUdhType();
+        String text = dataMessage.getText();
+        EncodingStatus encodingStatus;
+        if (dataMessage.isTransliteration()) {
+            TransliterationResult transliterationResult = TextUtils.transliterate(text, dataMessage.getLatinEncodingType(), udhType);
+            text = transliterationResult.getText();
+            encodingStatus = transliterationResult.getEncodingStatus();
+            LOGGER.info(String.format("transliterated, segments before=%s, after=%s",
+                    transliterationResult.getSegmentsBefore(), transliterationResult.getSegmentsAfter()));
+        } else {
+            encodingStatus = TextUtils.detectEncoding(text, dataMessage.getLatinEncodingType(), udhType);
+        }
+
+        byte[][] segments = TextUtils.getSegmentsOfMessage(text, encodingStatus, udhType, 0, dataMessage.getLatinEncodingType());
+        return new CompiledMessage(dataMessage, encodingStatus, segments);
+    }
+
+    /**
+     * Pdu fields of the message with already encoded segments, text of the message is not used.
+     */
+    static CompiledMessage compile(DataMessage dataMessage, EncodingStatus encodingStatus, byte[][] segments) {
+        return new CompiledMessage(dataMessage, encodingStatus, segments);
+    }
+
+    /**
+     * Same pdu fields for another destination and content, see {@link MessageTemplate}.
+     */
+    CompiledMessage personalize(String destinationAddr, EncodingStatus encodingStatus, byte[][] segments) {
+        return new CompiledMessage(this, destinationAddr, encodingStatus, segments);
+    }
+
+    private static ESMClass getEsmClass(UdhType udhType, int totalSegments, EncodingStatus encodingStatus) {
+        //single segment has no concatenation udh, national language shift tables are announced in udh
+        //even for single segment and tlv
+        if (TextUtils.hasUdh(udhType, totalSegments, encodingStatus)) {
+            return new ESMClass(ESMCLS_UDHI_INDICATOR_SET);
+        }
+        return new ESMClass(ESMCLS_DEFAULT_MODE);
+    }
+
+    public int getTotalSegments() {
+        return segments.length;
+    }
+
+    /**
+     * Short message of segment with concatenation reference number, must not be modified by caller.
+     */
+    public byte[] getSegment(int index, int ref) {
+        byte[] segment = segments[index];
+        if (segments.length > 1 && (udhType == udh_8bit || udhType == udh_16bit)) {
+            segment = segment.clone();
+            TextUtils.writeUdhReference(segment, ref, udhType);
+        }
+        return segment;
+    }
+
+    /**
+     * sar_* TLVs of segment for {@link UdhType#tlv}, empty for other udh types.
+     */
+    public OptionalParameter[] getOptionalParameters(int index, int ref) {
+        if (udhType != tlv) {
+            return NO_OPTIONAL_PARAMETERS;
+        }
+        return new OptionalParameter[]{
+                OptionalParameters.newSarMsgRefNum((short) ref),
+                sarSegmentSeqnums[index],
+                sarTotalSegments
+        };
+    }
+}
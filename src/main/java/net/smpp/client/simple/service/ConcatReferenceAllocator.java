@@ -0,0 +1,91 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.UdhType;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Concatenation reference numbers of one bind. Lock-free, may be called by many sender threads at once.
+ * <p>
+ * Every destination gets references in sequence from its own counter (destinations are hashed to a fixed
+ * number of counters, destinations sharing a counter only get bigger gaps), so long messages to the same
+ * handset don't share a reference until the whole 8 bit or 16 bit space is used. Messages still in flight
+ * are counted in hashed slots by destination and reference, a reference whose slot isn't empty is skipped.
+ * Slots may give false positives, it only makes the allocator skip a free reference. When all probed references
+ * are in flight, the next one is taken anyway and its slot counts one message more, so a slot is empty again
+ * only when all messages counted in it are released.
+ */
+public class ConcatReferenceAllocator {
+
+    private static final int COUNTERS = 1024; //power of 2
+    private static final int IN_FLIGHT_SLOTS = 1 << 16; //power of 2, 256 KB
+    //whole 8 bit space, 1/256 of 16 bit space, when all probed references are in flight the next one is taken anyway
+    private static final int MAX_PROBES = 256;
+
+    private final AtomicIntegerArray counters = new AtomicIntegerArray(COUNTERS);
+    //count of messages in flight per slot
+    private final AtomicIntegerArray inFlight = new AtomicIntegerArray(IN_FLIGHT_SLOTS);
+
+    public ConcatReferenceAllocator() {
+        //references of different runs of the application start from different values
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < COUNTERS; i++) {
+            counters.set(i, random.nextInt());
+        }
+    }
+
+    /**
+     * Reference for the next message to the destination, must be given back by {@link #release(CompiledMessage, int)}
+     * when all segments of the message got their final responses.
+     *
+     * @return 0 for message of one segment, it doesn't need a reference
+     */
+    public int allocate(CompiledMessage compiledMessage) {
+        if (!isConcatenated(compiledMessage)) {
+            return 0;
+        }
+        int mask = compiledMessage.getUdhType() == UdhType.udh_8bit ? 0xFF : 0xFFFF;
+        int destinationHash = hash(compiledMessage.getDestinationAddr());
+        int counter = destinationHash & (COUNTERS - 1);
+
+        for (int i = 0; i < MAX_PROBES; i++) {
+            int ref = counters.getAndIncrement(counter) & mask;
+            if (inFlight.compareAndSet(slot(destinationHash, ref), 0, 1)) {
+                return ref;
+            }
+        }
+        int ref = counters.getAndIncrement(counter) & mask;
+        inFlight.incrementAndGet(slot(destinationHash, ref));
+        return ref;
+    }
+
+    public void release(CompiledMessage compiledMessage, int ref) {
+        if (!isConcatenated(compiledMessage)) {
+            return;
+        }
+        int slot = slot(hash(compiledMessage.getDestinationAddr()), ref);
+        int count;
+        do {
+            count = inFlight.get(slot);
+            if (count == 0) {
+                return;
+            }
+        } while (!inFlight.compareAndSet(slot, count, count - 1));
+    }
+
+    private static boolean isConcatenated(CompiledMessage compiledMessage) {
+        return compiledMessage.getTotalSegments() > 1 && compiledMessage.getUdhType() != UdhType.no_udh;
+    }
+
+    private static int slot(int destinationHash, int ref) {
+        int hash = destinationHash * 31 + ref;
+        hash *= 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (IN_FLIGHT_SLOTS - 1);
+    }
+
+    private static int hash(String destinationAddr) {
+        int hash = destinationAddr == null ? 0 : destinationAddr.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,160 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.utils.RateLimiter;
+import org.apache.log4j.Logger;
+import org.jsmpp.extra.NegativeResponseException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.jsmpp.SMPPConstant.STAT_ESME_RMSGQFUL;
+import static org.jsmpp.SMPPConstant.STAT_ESME_RTHROTTLED;
+
+/**
+ * Additive increase, multiplicative decrease of submit_sm rate and window of one bind.
+ * <p>
+ * ESME_RTHROTTLED, ESME_RMSGQFUL and response time far above the best recent one are congestion signals:
+ * rate and window are halved, not more often than once per two response times. Every round of clean
+ * responses (as many as the window limit) adds one submit_sm per second to the rate and one slot to the window.
+ * Bind without configured rate isn't limited until the first decrease, which starts from the measured throughput.
+ * <p>
+ * The best response time is the minimum of the current and the previous window of {@value #MIN_LATENCY_WINDOW_SECONDS}
+ * seconds, so one exceptionally fast response doesn't lower the threshold for good.
+ */
+public class CongestionController {
+
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double RATE_INCREASE = 1;
+    private static final double MIN_RATE = 1;
+    private static final long MIN_DECREASE_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+    //response time above minimal one * factor + slack means queueing in SMSC
+    private static final int LATENCY_FACTOR = 4;
+    private static final long LATENCY_SLACK_MILLIS = 10;
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private static final long THROUGHPUT_SAMPLE = TimeUnit.SECONDS.toNanos(1);
+    private static final long MIN_LATENCY_WINDOW_SECONDS = 10;
+    private static final long MIN_LATENCY_WINDOW = TimeUnit.SECONDS.toNanos(MIN_LATENCY_WINDOW_SECONDS);
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final int number;
+    private final RateLimiter rateLimiter;
+    private final SubmitWindow submitWindow;
+    private final double maxRate;
+
+    private long lastDecreaseTime = System.nanoTime() - MIN_DECREASE_INTERVAL;
+    private int cleanResponses;
+    private double smoothedLatency;
+    //minimal response time of the current and the previous window
+    private long minLatency = Long.MAX_VALUE;
+    private long previousMinLatency = Long.MAX_VALUE;
+    private long minLatencyWindowStart = System.nanoTime();
+    private long sampleStart = System.nanoTime();
+    private int sampleResponses;
+    private double throughput;
+
+    /**
+     * @param maxRate configured rate of the bind, rate is never raised above it, 0 - no limit
+     */
+    public CongestionController(int number, RateLimiter rateLimiter, SubmitWindow submitWindow, double maxRate) {
+        this.number = number;
+        this.rateLimiter = rateLimiter;
+        this.submitWindow = submitWindow;
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * Whether SMSC asks to send slower, such submit_sm should be sent again.
+     */
+    public static boolean isThrottled(Throwable e) {
+        if (!(e instanceof NegativeResponseException)) {
+            return false;
+        }
+        int commandStatus = ((NegativeResponseException) e).getCommandStatus();
+        return commandStatus == STAT_ESME_RTHROTTLED || commandStatus == STAT_ESME_RMSGQFUL;
+    }
+
+    public synchronized void onResponse(long responseTimeMillis) {
+        long now = System.nanoTime();
+        countResponse(now);
+        long baseLatency = updateMinLatency(responseTimeMillis, now);
+        smoothedLatency = smoothedLatency == 0
+                ? responseTimeMillis
+                : smoothedLatency + LATENCY_SMOOTHING * (responseTimeMillis - smoothedLatency);
+
+        if (smoothedLatency > baseLatency * LATENCY_FACTOR + LATENCY_SLACK_MILLIS) {
+            decrease("response time " + Math.round(smoothedLatency) + " ms");
+            return;
+        }
+        if (++cleanResponses >= submitWindow.getLimit()) {
+            cleanResponses = 0;
+            increase();
+        }
+    }
+
+    public synchronized void onThrottled(Throwable e) {
+        countResponse(System.nanoTime());
+        decrease(e.getMessage());
+    }
+
+    private void increase() {
+        submitWindow.setLimit(submitWindow.getLimit() + 1);
+        if (!rateLimiter.isUnlimited()) {
+            double rate = rateLimiter.getRate() + RATE_INCREASE;
+            rateLimiter.setRate(maxRate > 0 ? Math.min(maxRate, rate) : rate);
+        }
+    }
+
+    private void decrease(String reason) {
+        long now = System.nanoTime();
+        long interval = Math.max(MIN_DECREASE_INTERVAL, TimeUnit.MILLISECONDS.toNanos(2 * Math.round(smoothedLatency)));
+        if (now - lastDecreaseTime < interval) {
+            return;
+        }
+        lastDecreaseTime = now;
+        cleanResponses = 0;
+
+        double rate = rateLimiter.isUnlimited() ? getThroughput(now) : rateLimiter.getRate();
+        rateLimiter.setRate(Math.max(MIN_RATE, rate * DECREASE_FACTOR));
+        submitWindow.setLimit((int) (submitWindow.getLimit() * DECREASE_FACTOR));
+        logger.warn(String.format("bind %s congested (%s), rate lowered to %.1f per second, window to %s",
+                number, reason, rateLimiter.getRate(), submitWindow.getLimit()));
+    }
+
+    /**
+     * @return minimal response time of the current and the previous window
+     */
+    private long updateMinLatency(long responseTimeMillis, long now) {
+        long elapsed = now - minLatencyWindowStart;
+        if (elapsed >= MIN_LATENCY_WINDOW) {
+            //previous window is forgotten too if no response came in it
+            previousMinLatency = elapsed < 2 * MIN_LATENCY_WINDOW ? minLatency : Long.MAX_VALUE;
+            minLatency = Long.MAX_VALUE;
+            minLatencyWindowStart = now;
+        }
+        minLatency = Math.min(minLatency, responseTimeMillis);
+        return Math.min(minLatency, previousMinLatency);
+    }
+
+    private void countResponse(long now) {
+        sampleResponses++;
+        if (now - sampleStart >= THROUGHPUT_SAMPLE) {
+            throughput = sampleResponses * (double) THROUGHPUT_SAMPLE / (now - sampleStart);
+            sampleStart = now;
+            sampleResponses = 0;
+        }
+    }
+
+    /**
+     * Responses per second of the last full sample, before the first sample is full it is estimated
+     * by the window and response time.
+     */
+    private double getThroughput(long now) {
+        if (throughput > 0) {
+            return throughput;
+        }
+        if (now - sampleStart > 0 && sampleResponses > 0) {
+            return sampleResponses * (double) THROUGHPUT_SAMPLE / (now - sampleStart);
+        }
+        return submitWindow.getLimit() * 1000.0 / Math.max(1, smoothedLatency);
+    }
+}
@@ -0,0 +1,296 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.Correlation;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Links message_id of submit_sm_resp to the sent segment until its delivery receipt comes, which may take days.
+ * <p>
+ * Entries live off-heap in open-addressing hash tables with linear probing, split into stripes with their own
+ * locks. Entry is 32 bytes: [key][reference][submit time][segment index], submit time 0 marks a free slot.
+ * Key is message id as a number when it is hex or decimal (by radix) and fits into long, 64-bit hash of it otherwise.
+ * Entries older than TTL are evicted by a background sweep, deletion shifts the following entries back,
+ * so there are no tombstones. When a stripe is full new entries are not stored and are counted.
+ */
+@Component
+public class CorrelationStore implements AutoCloseable {
+
+    private static final int STRIPES = 16; //power of 2
+    private static final int ENTRY_SIZE = 32;
+    private static final int REFERENCE_OFFSET = 8;
+    private static final int SUBMIT_TIME_OFFSET = 16;
+    private static final int SEGMENT_OFFSET = 24;
+    private static final int MAX_LOAD_PERCENT = 75;
+    private static final long EVICTION_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    //radix of message_id of submit_sm_resp and receipted_message_id
+    private static final int MESSAGE_ID_RADIX = 16;
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttl;
+    private final int receiptIdRadix;
+    private final ScheduledExecutorService evictionExecutor;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param capacity       max entries of all stripes, rounded up to a power of 2
+     * @param receiptIdRadix radix of id in the text of receipt, some SMSC give hex message_id in submit_sm_resp
+     *                       and decimal one in receipt
+     */
+    @Autowired
+    public CorrelationStore(@Value("${smpp.correlation.capacity:1048576}") int capacity,
+                            @Value("${smpp.correlation.ttl:72}") long ttlHours,
+                            @Value("${smpp.receipt.id.radix:16}") int receiptIdRadix) {
+        int slots = Integer.highestOneBit(Math.max(STRIPES * 2, capacity) - 1) << 1;
+        //table of one stripe fits into one buffer, 1 GB at most
+        int stripeSlots = Math.min(slots / STRIPES, 1 << 25);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeSlots);
+        }
+        this.ttl = TimeUnit.HOURS.toMillis(ttlHours);
+        this.receiptIdRadix = receiptIdRadix;
+
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "correlation-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictionExecutor.scheduleWithFixedDelay(this::evict, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+        logger.info(String.format("correlation store: %s entries, %s MB off-heap, ttl %s hours",
+                (long) stripeSlots * STRIPES * MAX_LOAD_PERCENT / 100, (long) stripeSlots * STRIPES * ENTRY_SIZE >> 20, ttlHours));
+    }
+
+    /**
+     * Stores sent segment by message_id of its submit_sm_resp, entry with the same id is replaced.
+     */
+    public void put(String messageId, long reference, long submitTime, int segmentIndex) {
+        long key = key(messageId, MESSAGE_ID_RADIX);
+        if (!stripe(key).put(key, reference, Math.max(1, submitTime), segmentIndex)) {
+            rejected.increment();
+            if (rejected.sum() % 10000 == 1) {
+                logger.warn(String.format("correlation store is full, %s segments are not stored", rejected.sum()));
+            }
+        }
+    }
+
+    /**
+     * @param remove entry is removed, for the final receipt
+     * @return null if segment of the receipt is not known or evicted
+     */
+    public Correlation find(ParsedReceipt receipt, boolean remove) {
+        int radix = receipt.isReceiptedMessageId() ? MESSAGE_ID_RADIX : receiptIdRadix;
+        long key = key(receipt.getIdBytes(), receipt.getIdLength(), radix);
+        return stripe(key).find(key, remove);
+    }
+
+    public long getSize() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * Segments not stored because the store was full, since start.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Entries evicted by TTL since start.
+     */
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    @Override
+    public void close() {
+        evictionExecutor.shutdownNow();
+    }
+
+    void evict() {
+        long expiredBefore = System.currentTimeMillis() - ttl;
+        for (Stripe stripe : stripes) {
+            evicted.add(stripe.evict(expiredBefore));
+        }
+    }
+
+    private Stripe stripe(long key) {
+        return stripes[(int) (mix(key) >>> 60) & (STRIPES - 1)];
+    }
+
+    static long key(String messageId, int radix) {
+        long value = 0;
+        boolean numeric = !messageId.isEmpty() && messageId.length() <= maxDigits(radix);
+        for (int i = 0; i < messageId.length() && numeric; i++) {
+            int digit = Character.digit(messageId.charAt(i), radix);
+            numeric = digit >= 0;
+            value = value * radix + digit;
+        }
+        if (numeric) {
+            return value;
+        }
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash = (hash ^ messageId.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static long key(byte[] messageId, int length, int radix) {
+        long value = 0;
+        boolean numeric = length > 0 && length <= maxDigits(radix);
+        for (int i = 0; i < length && numeric; i++) {
+            int digit = Character.digit(messageId[i], radix);
+            numeric = digit >= 0;
+            value = value * radix + digit;
+        }
+        if (numeric) {
+            return value;
+        }
+        //FNV-1a, the same as of String for ASCII ids
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (messageId[i] & 0xFF)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Digits which always fit into long: 16 hex, 18 decimal.
+     */
+    private static int maxDigits(int radix) {
+        return radix == 16 ? 16 : 18;
+    }
+
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        return key ^ key >>> 33;
+    }
+
+    private static final class Stripe {
+
+        private final ByteBuffer table;
+        private final int mask;
+        private final int maxSize;
+        private int size;
+
+        private Stripe(int slots) {
+            this.table = ByteBuffer.allocateDirect(slots * ENTRY_SIZE);
+            this.mask = slots - 1;
+            this.maxSize = (int) ((long) slots * MAX_LOAD_PERCENT / 100);
+        }
+
+        synchronized boolean put(long key, long reference, long submitTime, int segmentIndex) {
+            int slot = home(key);
+            while (!isFree(slot)) {
+                if (table.getLong(slot * ENTRY_SIZE) == key) {
+                    write(slot, key, reference, submitTime, segmentIndex);
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (size >= maxSize) {
+                return false;
+            }
+            write(slot, key, reference, submitTime, segmentIndex);
+            size++;
+            return true;
+        }
+
+        synchronized Correlation find(long key, boolean remove) {
+            for (int slot = home(key); !isFree(slot); slot = (slot + 1) & mask) {
+                int position = slot * ENTRY_SIZE;
+                if (table.getLong(position) == key) {
+                    Correlation correlation = new Correlation(table.getLong(position + REFERENCE_OFFSET),
+                            table.getLong(position + SUBMIT_TIME_OFFSET),
+                            table.getInt(position + SEGMENT_OFFSET));
+                    if (remove) {
+                        delete(slot);
+                    }
+                    return correlation;
+                }
+            }
+            return null;
+        }
+
+        synchronized int getSize() {
+            return size;
+        }
+
+        /**
+         * @return count of evicted entries
+         */
+        synchronized int evict(long expiredBefore) {
+            int evicted = 0;
+            //slot is checked again after deletion, the next entry may be shifted into it
+            for (int slot = 0; slot <= mask; ) {
+                long submitTime = table.getLong(slot * ENTRY_SIZE + SUBMIT_TIME_OFFSET);
+                if (submitTime != 0 && submitTime < expiredBefore) {
+                    delete(slot);
+                    evicted++;
+                } else {
+                    slot++;
+                }
+            }
+            return evicted;
+        }
+
+        /**
+         * Backward shift deletion: entries after the slot which may move closer to their home slot are moved.
+         */
+        private void delete(int slot) {
+            int free = slot;
+            int next = (slot + 1) & mask;
+            while (!isFree(next)) {
+                int home = home(table.getLong(next * ENTRY_SIZE));
+                //entry stays if its home is cyclically in (free, next]
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    copy(next, free);
+                    free = next;
+                }
+                next = (next + 1) & mask;
+            }
+            table.putLong(free * ENTRY_SIZE + SUBMIT_TIME_OFFSET, 0);
+            size--;
+        }
+
+        private int home(long key) {
+            return (int) mix(key) & mask;
+        }
+
+        private boolean isFree(int slot) {
+            return table.getLong(slot * ENTRY_SIZE + SUBMIT_TIME_OFFSET) == 0;
+        }
+
+        private void write(int slot, long key, long reference, long submitTime, int segmentIndex) {
+            int position = slot * ENTRY_SIZE;
+            table.putLong(position, key);
+            table.putLong(position + REFERENCE_OFFSET, reference);
+            table.putLong(position + SUBMIT_TIME_OFFSET, submitTime);
+            table.putInt(position + SEGMENT_OFFSET, segmentIndex);
+        }
+
+        private void copy(int from, int to) {
+            for (int offset = 0; offset < ENTRY_SIZE; offset += Long.BYTES) {
+                table.putLong(to * ENTRY_SIZE + offset, table.getLong(from * ENTRY_SIZE + offset));
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.smpp.client.simple.service;
+
+import lombok.Getter;
+import org.jsmpp.bean.DeliverSm;
+import org.jsmpp.bean.OptionalParameter;
+
+/**
+ * Raw fields of received deliver_sm. Instances are slots of {@link DeliverSmRing} and are reused,
+ * fields are valid only while the event is processed.
+ */
+@Getter
+class DeliverSmEvent {
+
+    private String sourceAddr;
+    private String destAddress;
+    private byte esmClass;
+    private byte dataCoding;
+    private byte[] shortMessage;
+    private OptionalParameter[] optionalParameters;
+    private int sequenceNumber;
+    private long receivedTime;
+
+    void copy(DeliverSm deliverSm) {
+        sourceAddr = deliverSm.getSourceAddr();
+        destAddress = deliverSm.getDestAddress();
+        esmClass = deliverSm.getEsmClass();
+        dataCoding = deliverSm.getDataCoding();
+        shortMessage = deliverSm.getShortMessage();
+        optionalParameters = deliverSm.getOptionalParameters();
+        sequenceNumber = deliverSm.getSequenceNumber();
+        receivedTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Drops references, so processed PDU is not kept alive by the slot.
+     */
+    void clear() {
+        sourceAddr = null;
+        destAddress = null;
+        shortMessage = null;
+        optionalParameters = null;
+    }
+}
@@ -0,0 +1,145 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.enums.WaitStrategy;
+import org.apache.log4j.Logger;
+import org.jsmpp.bean.DeliverSm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring of preallocated {@link DeliverSmEvent} slots between session threads (many producers)
+ * and one processing thread.
+ * <p>
+ * Producer claims a sequence by CAS, copies deliver_sm fields into the slot and publishes the sequence in it.
+ * Processing thread takes all published slots in a row as one batch, frees them at once after the batch,
+ * and waits by {@link WaitStrategy} when nothing is published.
+ */
+class DeliverSmRing {
+
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long SPACE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final DeliverSmEvent[] slots;
+    //sequence published in the slot, -1 - none yet
+    private final AtomicLongArray published;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final Thread consumerThread;
+    //next sequence to claim
+    private final AtomicLong claimed = new AtomicLong();
+    //next sequence to process, slots before it are free
+    private volatile long consumed;
+    private volatile boolean consumerWaiting;
+
+    /**
+     * @param capacity rounded up to a power of 2
+     */
+    DeliverSmRing(String name, int capacity, WaitStrategy waitStrategy, Consumer<DeliverSmEvent> handler) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new DeliverSmEvent[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new DeliverSmEvent();
+            published.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+
+        consumerThread = new Thread(() -> consume(handler), name);
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+    }
+
+    /**
+     * @return false if the ring is full
+     */
+    boolean tryPublish(DeliverSm deliverSm) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) sequence & mask;
+        slots[index].copy(deliverSm);
+        //volatile write, it must not be reordered with the read of consumerWaiting
+        published.set(index, sequence);
+        if (consumerWaiting) {
+            LockSupport.unpark(consumerThread);
+        }
+        return true;
+    }
+
+    /**
+     * Waits while the ring is full.
+     */
+    void publish(DeliverSm deliverSm) throws InterruptedException {
+        while (!tryPublish(deliverSm)) {
+            LockSupport.parkNanos(SPACE_WAIT_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Events published and not processed yet.
+     */
+    long getBacklog() {
+        return Math.max(0, claimed.get() - consumed);
+    }
+
+    private void consume(Consumer<DeliverSmEvent> handler) {
+        long next = consumed;
+        while (true) {
+            long end = next;
+            while (published.get((int) end & mask) == end) {
+                end++;
+            }
+            if (end == next) {
+                idle(next);
+                continue;
+            }
+
+            for (long sequence = next; sequence < end; sequence++) {
+                DeliverSmEvent event = slots[(int) sequence & mask];
+                try {
+                    handler.accept(event);
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+                event.clear();
+            }
+            next = end;
+            consumed = next;
+        }
+    }
+
+    private void idle(long next) {
+        switch (waitStrategy) {
+            case BLOCKING:
+                consumerWaiting = true;
+                if (published.get((int) next & mask) != next) {
+                    LockSupport.park(this);
+                }
+                consumerWaiting = false;
+                break;
+            case SLEEPING:
+                LockSupport.parkNanos(SLEEP_NANOS);
+                break;
+            case YIELDING:
+                Thread.yield();
+                break;
+            default:
+                //BUSY_SPIN
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.enums.MessageState;
+import org.jsmpp.bean.OptionalParameter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+
+/**
+ * Parses delivery receipt straight from short_message bytes into {@link ParsedReceipt}, nothing is allocated.
+ * <p>
+ * Text is "id:... sub:... dlvrd:... submit date:YYMMDDhhmm[ss] done date:YYMMDDhhmm[ss] stat:... err:... text:...",
+ * field names are case-insensitive, fields may be missing or go in other order, unknown fields are skipped.
+ * receipted_message_id and message_state TLVs take precedence over the text.
+ * Dates are in the time zone of SMSC, which is given to the parser. Parser is thread-safe.
+ */
+public class DeliveryReceiptParser {
+
+    private static final short TAG_RECEIPTED_MESSAGE_ID = 0x001E;
+    private static final short TAG_MESSAGE_STATE = 0x0427;
+
+    //field names in lower case, index is the field
+    private static final byte[][] FIELDS = {
+            ascii("id:"),
+            ascii("sub:"),
+            ascii("dlvrd:"),
+            ascii("submit date:"),
+            ascii("done date:"),
+            ascii("stat:"),
+            ascii("err:"),
+            ascii("text:")
+    };
+    private static final int ID = 0;
+    private static final int SUBMITTED = 1;
+    private static final int DELIVERED = 2;
+    private static final int SUBMIT_DATE = 3;
+    private static final int DONE_DATE = 4;
+    private static final int STAT = 5;
+    private static final int ERROR = 6;
+    private static final int TEXT = 7;
+
+    private static final MessageState[] STATES = MessageState.values();
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private final TimeZone timeZone;
+
+    public DeliveryReceiptParser(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * @param optionalParameters may be null
+     * @return false if receipt has no message id
+     */
+    public boolean parse(byte[] shortMessage, OptionalParameter[] optionalParameters, ParsedReceipt receipt) {
+        receipt.reset();
+        if (shortMessage != null) {
+            parseText(shortMessage, receipt);
+        }
+        if (optionalParameters != null) {
+            for (OptionalParameter parameter : optionalParameters) {
+                parseParameter(parameter, receipt);
+            }
+        }
+        return receipt.getIdLength() > 0;
+    }
+
+    private void parseText(byte[] text, ParsedReceipt receipt) {
+        int i = 0;
+        while (i < text.length) {
+            if (text[i] == ' ') {
+                i++;
+                continue;
+            }
+            int field = matchField(text, i);
+            if (field == TEXT) {
+                return;
+            }
+            int start = field < 0 ? i : i + FIELDS[field].length;
+            int end = start;
+            while (end < text.length && text[end] != ' ') {
+                end++;
+            }
+
+            switch (field) {
+                case ID:
+                    receipt.setId(text, start, end - start);
+                    break;
+                case SUBMITTED:
+                    receipt.setSubmitted(parseDecimal(text, start, end));
+                    break;
+                case DELIVERED:
+                    receipt.setDelivered(parseDecimal(text, start, end));
+                    break;
+                case SUBMIT_DATE:
+                    receipt.setSubmitDate(parseDate(text, start, end));
+                    break;
+                case DONE_DATE:
+                    receipt.setDoneDate(parseDate(text, start, end));
+                    break;
+                case STAT:
+                    receipt.setState(matchState(text, start, end));
+                    break;
+                case ERROR:
+                    int error = parseDecimal(text, start, end);
+                    //some SMSC give error in hex
+                    receipt.setError(error != ParsedReceipt.NO_VALUE ? error : parseHex(text, start, end));
+                    break;
+                default:
+                    //unknown field
+            }
+            i = end;
+        }
+    }
+
+    private static void parseParameter(OptionalParameter parameter, ParsedReceipt receipt) {
+        if (parameter.tag == TAG_RECEIPTED_MESSAGE_ID && parameter instanceof OptionalParameter.OctetString) {
+            byte[] value = ((OptionalParameter.OctetString) parameter).getValue();
+            int length = value == null ? 0 : value.length;
+            //C-Octet String, terminating zero is not a part of id
+            while (length > 0 && value[length - 1] == 0) {
+                length--;
+            }
+            if (length > 0) {
+                receipt.setId(value, 0, length);
+                receipt.setReceiptedMessageId(true);
+            }
+        } else if (parameter.tag == TAG_MESSAGE_STATE && parameter instanceof OptionalParameter.Byte) {
+            MessageState state = MessageState.getStateByCode(((OptionalParameter.Byte) parameter).getValue());
+            if (state != null) {
+                receipt.setState(state);
+            }
+        }
+    }
+
+    /**
+     * @return index of field whose name starts at the offset, -1 if none
+     */
+    private static int matchField(byte[] text, int offset) {
+        for (int field = 0; field < FIELDS.length; field++) {
+            if (regionMatches(text, offset, FIELDS[field], true)) {
+                return field;
+            }
+        }
+        return -1;
+    }
+
+    private static MessageState matchState(byte[] text, int start, int end) {
+        for (MessageState state : STATES) {
+            if (end - start == state.getStat().length && regionMatches(text, start, state.getStat(), false)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionMatches(byte[] text, int offset, byte[] expected, boolean lowerCase) {
+        if (offset + expected.length > text.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            int b = text[offset + i];
+            //ASCII letter to lower case, ':' and ' ' are not changed
+            if ((lowerCase ? b | 0x20 : b) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Local date YYMMDDhhmm or YYMMDDhhmmss of the 21st century to epoch millis.
+     *
+     * @return {@link ParsedReceipt#NO_DATE} if date is malformed
+     */
+    private long parseDate(byte[] text, int start, int end) {
+        int length = end - start;
+        if (length != 10 && length != 12) {
+            return ParsedReceipt.NO_DATE;
+        }
+        int year = 2000 + parseDecimal(text, start, start + 2);
+        int month = parseDecimal(text, start + 2, start + 4);
+        int day = parseDecimal(text, start + 4, start + 6);
+        int hour = parseDecimal(text, start + 6, start + 8);
+        int minute = parseDecimal(text, start + 8, start + 10);
+        int second = length == 12 ? parseDecimal(text, start + 10, start + 12) : 0;
+        if (year < 2000 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return ParsedReceipt.NO_DATE;
+        }
+
+        long local = daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60 + second) * 1000;
+        return local - timeZone.getOffset(local - timeZone.getRawOffset());
+    }
+
+    /**
+     * Days since 1970-01-01 of proleptic Gregorian date, year is not negative.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        if (month <= 2) {
+            year--;
+        }
+        int era = year / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * @return {@link ParsedReceipt#NO_VALUE} if there are no digits or not only digits
+     */
+    private static int parseDecimal(byte[] text, int start, int end) {
+        if (start >= end) {
+            return ParsedReceipt.NO_VALUE;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                return ParsedReceipt.NO_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int parseHex(byte[] text, int start, int end) {
+        if (start >= end || end - start > 7) {
+            return ParsedReceipt.NO_VALUE;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(text[i], 16);
+            if (digit < 0) {
+                return ParsedReceipt.NO_VALUE;
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
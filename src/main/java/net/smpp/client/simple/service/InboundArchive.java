@@ -0,0 +1,562 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.InboundRecord;
+import net.smpp.client.simple.enums.InboundType;
+import net.smpp.client.simple.enums.MessageState;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only archive of delivery receipts and mobile originated messages, partitioned by hour (UTC).
+ * <p>
+ * Partition is a data file of records [payload length][crc32 of payload][payload] and two index files:
+ * by message id and by address of the subscriber (source address of deliver_sm), see {@link ArchiveIndex}.
+ * Records are queued and written in batches by one writer thread, index of the open partition is kept
+ * in memory and written to files when the partition is closed at the end of its hour; index which is missing
+ * after a crash is rebuilt from the data file. Record is in the partition of the hour it was written in,
+ * which is the hour it was received in or a later one. Partitions older than retention are deleted.
+ * <p>
+ * Hour with more records than the partition limit is split into parts, inbound-yyyyMMddHH, inbound-yyyyMMddHH-1
+ * and so on, so the index in memory stays bounded. Part may have up to a batch of records over the limit.
+ * <p>
+ * Archive is disabled if directory is not set.
+ */
+@Component
+public class InboundArchive implements AutoCloseable {
+
+    private static final String PARTITION_PREFIX = "inbound-";
+    private static final String DATA_SUFFIX = ".data";
+    private static final String ID_INDEX_SUFFIX = ".id.index";
+    private static final String ADDRESS_INDEX_SUFFIX = ".address.index";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("yyyyMMddHH").withZone(ZoneOffset.UTC);
+    private static final char PART_SEPARATOR = '-';
+    private static final long PARTITION_LENGTH = TimeUnit.HOURS.toMillis(1);
+    private static final int HEADER_LENGTH = 8;
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+    private static final int QUEUE_CAPACITY = 65536;
+    private static final int MAX_BATCH = 4096;
+    private static final long POLL_INTERVAL = 100; //millis
+    private static final byte FORMAT_VERSION = 1;
+    private static final int ID_RADIX = 16;
+    private static final int ADDRESS_RADIX = 10;
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final File directory;
+    private final long retention;
+    private final int partitionRecords;
+    private final BlockingQueue<InboundRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final TreeMap<Long, Partition> partitions = new TreeMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private Thread writer;
+    private Partition current;
+    private volatile boolean closed;
+
+    @Autowired
+    public InboundArchive(@Value("${smpp.archive.dir:}") String directory,
+                          @Value("${smpp.archive.retention:30}") int retentionDays,
+                          @Value("${smpp.archive.partition.records:1048576}") int partitionRecords) throws IOException {
+        this.directory = directory.isEmpty() ? null : new File(directory);
+        this.retention = TimeUnit.DAYS.toMillis(retentionDays);
+        //part may get a batch over the limit, its indexes must still fit
+        this.partitionRecords = Math.max(1, Math.min(partitionRecords, ArchiveIndex.MAX_ENTRIES - MAX_BATCH));
+        if (this.directory == null) {
+            return;
+        }
+
+        open();
+        writer = new Thread(this::write, "inbound-archive");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Queues record for writing, record is dropped and counted if the queue is full.
+     */
+    public void append(InboundRecord record) {
+        if (directory == null || closed) {
+            return;
+        }
+        if (!queue.offer(record)) {
+            dropped.increment();
+            if (dropped.sum() % 10000 == 1) {
+                logger.warn(String.format("inbound archive is behind, %s records are not archived", dropped.sum()));
+            }
+        }
+    }
+
+    /**
+     * Records received in [from, to] with the message id, in order of receiving.
+     */
+    public List<InboundRecord> findByMessageId(String messageId, long from, long to) throws IOException {
+        return find(messageId, true, from, to);
+    }
+
+    /**
+     * Records received in [from, to] from the subscriber address, in order of receiving.
+     */
+    public List<InboundRecord> findByAddress(String address, long from, long to) throws IOException {
+        return find(address, false, from, to);
+    }
+
+    /**
+     * Reads records received in [from, to] partition by partition, in order of writing.
+     */
+    public void replay(long from, long to, Consumer<InboundRecord> consumer) throws IOException {
+        List<Partition> selected;
+        long currentSize;
+        synchronized (this) {
+            selected = new ArrayList<>(select(from, to));
+            currentSize = current == null ? 0 : current.size;
+        }
+        for (Partition partition : selected) {
+            try (FileChannel channel = FileChannel.open(partition.dataFile.toPath(), READ)) {
+                long end = partition == current ? currentSize : channel.size();
+                scan(channel, end, (offset, record) -> {
+                    if (record.getReceivedTime() >= from && record.getReceivedTime() <= to) {
+                        consumer.accept(record);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Records not archived since start because the writer was behind.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        if (directory == null || closed) {
+            return;
+        }
+        closed = true;
+        writer.join();
+        List<InboundRecord> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        synchronized (this) {
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+            }
+            if (current != null) {
+                closePartition(current);
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create archive directory " + directory);
+        }
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PARTITION_PREFIX) && name.endsWith(DATA_SUFFIX));
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            String stem = name.substring(PARTITION_PREFIX.length(), name.length() - DATA_SUFFIX.length());
+            int separator = stem.indexOf(PART_SEPARATOR);
+            try {
+                long start = LocalDateTime.parse(separator < 0 ? stem : stem.substring(0, separator), PARTITION_NAME)
+                        .toInstant(ZoneOffset.UTC).toEpochMilli();
+                int part = separator < 0 ? 0 : Integer.parseInt(stem.substring(separator + 1));
+                addPartition(new Partition(start, part));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                logger.warn("not an archive partition: " + file);
+            }
+        }
+        deleteExpired(System.currentTimeMillis());
+    }
+
+    private void write() {
+        List<InboundRecord> batch = new ArrayList<>(MAX_BATCH);
+        while (!closed) {
+            try {
+                InboundRecord first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                synchronized (this) {
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.error("inbound records are not archived: " + e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * One write of all records into the partition of the current hour, a full partition is followed by the next part.
+     */
+    private void writeBatch(List<InboundRecord> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.size() * 128);
+        long[] offsets = new long[batch.size()];
+        CRC32 crc = new CRC32();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            for (int i = 0; i < batch.size(); i++) {
+                byte[] payload = encode(batch.get(i));
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                offsets[i] = output.size();
+                output.writeInt(payload.length);
+                output.writeInt((int) crc.getValue());
+                output.write(payload);
+            }
+        }
+
+        Partition partition = partitionForWrite(System.currentTimeMillis());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            partition.channel.write(buffer, partition.size + buffer.position());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            index(partition.idIndex, partition.addressIndex, batch.get(i), partition.size + offsets[i]);
+        }
+        partition.size += buffer.capacity();
+        partition.records += batch.size();
+    }
+
+    private Partition partitionForWrite(long now) throws IOException {
+        long start = now - Math.floorMod(now, PARTITION_LENGTH);
+        if (current != null) {
+            //clock moved back, the hour of the current partition is kept
+            start = Math.max(start, current.start);
+            if (start == current.start && current.records < partitionRecords) {
+                return current;
+            }
+            closePartition(current);
+        }
+        deleteExpired(now);
+
+        //the last part of the hour is continued after restart
+        Map.Entry<Long, Partition> last = partitions.floorEntry(start + PARTITION_LENGTH - 1);
+        Partition partition = last != null && last.getValue().start == start
+                ? last.getValue()
+                : addPartition(new Partition(start, 0));
+        openForWrite(partition);
+        if (partition.records >= partitionRecords) {
+            closePartition(partition);
+            partition = addPartition(new Partition(start, partition.part + 1));
+            openForWrite(partition);
+        }
+        return partition;
+    }
+
+    private void openForWrite(Partition partition) throws IOException {
+        //index files become stale with the first record, they are written again when partition is closed
+        partition.idIndexFile.delete();
+        partition.addressIndexFile.delete();
+        partition.idIndex = new ArchiveIndex();
+        partition.addressIndex = new ArchiveIndex();
+        partition.channel = FileChannel.open(partition.dataFile.toPath(), CREATE, READ, WRITE);
+        partition.records = 0;
+        partition.size = scan(partition.channel, partition.channel.size(), (offset, record) -> {
+            index(partition.idIndex, partition.addressIndex, record, offset);
+            partition.records++;
+        });
+        //torn record of a crash
+        partition.channel.truncate(partition.size);
+        current = partition;
+    }
+
+    private Partition addPartition(Partition partition) {
+        //parts of the hour follow its start, there are fewer of them than milliseconds in the hour
+        partitions.put(partition.start + partition.part, partition);
+        return partition;
+    }
+
+    private void closePartition(Partition partition) throws IOException {
+        partition.channel.force(false);
+        partition.channel.close();
+        partition.channel = null;
+        writeIndex(partition.idIndex, partition.idIndexFile);
+        writeIndex(partition.addressIndex, partition.addressIndexFile);
+        //mapped from the files when needed
+        partition.idIndex = null;
+        partition.addressIndex = null;
+        if (partition == current) {
+            current = null;
+        }
+    }
+
+    private void deleteExpired(long now) {
+        while (!partitions.isEmpty() && partitions.firstEntry().getValue().start + PARTITION_LENGTH <= now - retention
+                && partitions.firstEntry().getValue() != current) {
+            Partition partition = partitions.pollFirstEntry().getValue();
+            partition.dataFile.delete();
+            partition.idIndexFile.delete();
+            partition.addressIndexFile.delete();
+            logger.info("archive partition deleted: " + partition.dataFile);
+        }
+    }
+
+    private synchronized List<InboundRecord> find(String value, boolean byId, long from, long to) throws IOException {
+        if (directory == null) {
+            return new ArrayList<>();
+        }
+        long key = CorrelationStore.key(value, byId ? ID_RADIX : ADDRESS_RADIX);
+        List<InboundRecord> found = new ArrayList<>();
+        for (Partition partition : select(from, to)) {
+            loadIndexes(partition);
+            LongStream.Builder offsets = LongStream.builder();
+            (byId ? partition.idIndex : partition.addressIndex).find(key, offsets::add);
+            long[] positions = offsets.build().toArray();
+            if (positions.length == 0) {
+                continue;
+            }
+
+            FileChannel channel = partition.channel != null
+                    ? partition.channel
+                    : FileChannel.open(partition.dataFile.toPath(), READ);
+            try {
+                for (long position : positions) {
+                    InboundRecord record = read(channel, position);
+                    //keys of not numeric values are hashes, values are compared
+                    String recordValue = byId ? record.getMessageId() : record.getSourceAddr();
+                    if (value.equals(recordValue) && record.getReceivedTime() >= from && record.getReceivedTime() <= to) {
+                        found.add(record);
+                    }
+                }
+            } finally {
+                if (channel != partition.channel) {
+                    channel.close();
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(InboundRecord::getReceivedTime));
+        return found;
+    }
+
+    /**
+     * Partitions which may have records received in [from, to].
+     */
+    private List<Partition> select(long from, long to) {
+        long first = Math.max(0, from) - Math.floorMod(Math.max(0, from), PARTITION_LENGTH);
+        long last = to > Long.MAX_VALUE - PARTITION_LENGTH ? Long.MAX_VALUE : to + PARTITION_LENGTH;
+        return first > last ? new ArrayList<>() : new ArrayList<>(partitions.subMap(first, true, last, false).values());
+    }
+
+    private void loadIndexes(Partition partition) throws IOException {
+        if (partition.idIndex != null) {
+            return;
+        }
+        if (!partition.idIndexFile.exists() || !partition.addressIndexFile.exists()) {
+            logger.info("archive index is rebuilt: " + partition.dataFile);
+            ArchiveIndex idIndex = new ArchiveIndex();
+            ArchiveIndex addressIndex = new ArchiveIndex();
+            try (FileChannel channel = FileChannel.open(partition.dataFile.toPath(), READ)) {
+                scan(channel, channel.size(), (offset, record) -> index(idIndex, addressIndex, record, offset));
+            }
+            writeIndex(idIndex, partition.idIndexFile);
+            writeIndex(addressIndex, partition.addressIndexFile);
+        }
+        partition.idIndex = mapIndex(partition.idIndexFile);
+        partition.addressIndex = mapIndex(partition.addressIndexFile);
+    }
+
+    private static void index(ArchiveIndex idIndex, ArchiveIndex addressIndex, InboundRecord record, long offset) {
+        if (!nonNull(record.getMessageId()).isEmpty()) {
+            idIndex.put(CorrelationStore.key(record.getMessageId(), ID_RADIX), offset);
+        }
+        if (!nonNull(record.getSourceAddr()).isEmpty()) {
+            addressIndex.put(CorrelationStore.key(record.getSourceAddr(), ADDRESS_RADIX), offset);
+        }
+    }
+
+    private static void writeIndex(ArchiveIndex index, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING)) {
+            index.writeTo(channel);
+            channel.force(false);
+        }
+    }
+
+    private static ArchiveIndex mapIndex(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            return new ArchiveIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads records in order up to the end or the first torn record.
+     *
+     * @return end of the last whole record
+     */
+    private static long scan(FileChannel channel, long end, RecordConsumer consumer) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0)), 1 << 16));
+        long position = 0;
+        CRC32 crc = new CRC32();
+        while (position + HEADER_LENGTH <= end) {
+            int length;
+            int checksum;
+            byte[] payload;
+            try {
+                length = input.readInt();
+                checksum = input.readInt();
+                if (length <= 0 || length > MAX_RECORD_LENGTH || position + HEADER_LENGTH + length > end) {
+                    break;
+                }
+                payload = new byte[length];
+                input.readFully(payload);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            consumer.accept(position, decode(payload));
+            position += HEADER_LENGTH + length;
+        }
+        return position;
+    }
+
+    private static InboundRecord read(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        readFully(channel, header, position);
+        int length = header.getInt(0);
+        if (length <= 0 || length > MAX_RECORD_LENGTH) {
+            throw new IOException(String.format("broken archive record at %s", position));
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, position + HEADER_LENGTH);
+        return decode(payload.array());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("archive record is cut at " + position);
+            }
+        }
+    }
+
+    static byte[] encode(InboundRecord record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT_VERSION);
+            output.writeByte(record.getType().ordinal());
+            output.writeLong(record.getReceivedTime());
+            output.writeUTF(nonNull(record.getMessageId()));
+            output.writeUTF(nonNull(record.getSourceAddr()));
+            output.writeUTF(nonNull(record.getDestAddress()));
+            output.writeByte(record.getState() == null ? 0 : record.getState().getCode());
+            output.writeInt(record.getError());
+            output.writeLong(record.getDoneDate());
+            output.writeLong(record.getReference());
+            //text of a long message may not fit into writeUTF
+            byte[] text = nonNull(record.getText()).getBytes(StandardCharsets.UTF_8);
+            output.writeInt(text.length);
+            output.write(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static InboundRecord decode(byte[] payload) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        byte version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unknown format of archive record: " + version);
+        }
+        return new InboundRecord(InboundType.values()[input.readByte()],
+                input.readLong(),
+                input.readUTF(),
+                input.readUTF(),
+                input.readUTF(),
+                MessageState.getStateByCode(input.readByte()),
+                input.readInt(),
+                input.readLong(),
+                input.readLong(),
+                readText(input));
+    }
+
+    private static String readText(DataInputStream input) throws IOException {
+        byte[] text = new byte[input.readInt()];
+        input.readFully(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    private interface RecordConsumer {
+        void accept(long offset, InboundRecord record) throws IOException;
+    }
+
+    private final class Partition {
+
+        private final long start;
+        private final int part;
+        private final File dataFile;
+        private final File idIndexFile;
+        private final File addressIndexFile;
+        //open partition: in memory, closed one: mapped from files when needed
+        private ArchiveIndex idIndex;
+        private ArchiveIndex addressIndex;
+        //only of the open partition
+        private FileChannel channel;
+        private long size;
+        private int records;
+
+        private Partition(long start, int part) {
+            this.start = start;
+            this.part = part;
+            String name = PARTITION_PREFIX + PARTITION_NAME.format(Instant.ofEpochMilli(start))
+                    + (part == 0 ? "" : PART_SEPARATOR + String.valueOf(part));
+            this.dataFile = new File(directory, name + DATA_SUFFIX);
+            this.idIndexFile = new File(directory, name + ID_INDEX_SUFFIX);
+            this.addressIndexFile = new File(directory, name + ADDRESS_INDEX_SUFFIX);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.InboundMessage;
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.utils.TextUtils;
+import org.apache.log4j.Logger;
+import org.jsmpp.bean.OptionalParameter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.smpp.client.simple.utils.Constants.*;
+
+/**
+ * Joins segments of inbound concatenated messages. Segment is recognized by concatenation IE of 8 bit or 16 bit
+ * reference in UDH, or by sar_* TLVs. Text is decoded once, when all segments are here, so characters split
+ * between segments are decoded right.
+ * <p>
+ * Incomplete messages are kept by (source address, reference, total segments) in access order. A message whose
+ * last segment came more than timeout ago is dropped, and the least recently updated messages are dropped when
+ * count of messages or bytes of their segments is over the limit, so lost segments don't take memory.
+ */
+@Component
+class MessageReassembler {
+
+    private static final short TAG_SAR_MSG_REF_NUM = 0x020C;
+    private static final short TAG_SAR_TOTAL_SEGMENTS = 0x020E;
+    private static final short TAG_SAR_SEGMENT_SEQNUM = 0x020F;
+    private static final short TAG_MESSAGE_PAYLOAD = 0x0424;
+    private static final byte ESM_UDHI = 0x40;
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final int maxMessages;
+    private final long maxBytes;
+    private final long timeout;
+    private final LinkedHashMap<String, Partial> partials = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder dropped = new LongAdder();
+    private long bytes;
+
+    @Autowired
+    public MessageReassembler(@Value("${smpp.reassembly.max.messages:10000}") int maxMessages,
+                              @Value("${smpp.reassembly.max.bytes:16777216}") long maxBytes,
+                              @Value("${smpp.reassembly.timeout:600}") long timeoutSeconds) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.timeout = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    /**
+     * @return message if the segment completes it or is not a part of a concatenated message, null otherwise
+     */
+    public InboundMessage add(DeliverSmEvent event) throws UnsupportedEncodingException {
+        byte[] shortMessage = event.getShortMessage();
+        if (shortMessage == null || shortMessage.length == 0) {
+            shortMessage = getMessagePayload(event.getOptionalParameters());
+        }
+
+        int reference = -1;
+        int total = 1;
+        int number = 1;
+        int payloadOffset = 0;
+        if ((event.getEsmClass() & ESM_UDHI) != 0 && shortMessage.length > 0) {
+            int udhLength = shortMessage[0] & 0xFF;
+            payloadOffset = Math.min(shortMessage.length, udhLength + 1);
+            //information elements: [identifier][length][data]
+            for (int i = 1; i + 1 < payloadOffset; i += 2 + (shortMessage[i + 1] & 0xFF)) {
+                int identifier = shortMessage[i];
+                int length = shortMessage[i + 1] & 0xFF;
+                if (identifier == UDH_IE_CONCAT_8BIT && length == 3 && i + 4 < payloadOffset) {
+                    reference = shortMessage[i + 2] & 0xFF;
+                    total = shortMessage[i + 3] & 0xFF;
+                    number = shortMessage[i + 4] & 0xFF;
+                } else if (identifier == UDH_IE_CONCAT_16BIT && length == 4 && i + 5 < payloadOffset) {
+                    reference = (shortMessage[i + 2] & 0xFF) << 8 | shortMessage[i + 3] & 0xFF;
+                    total = shortMessage[i + 4] & 0xFF;
+                    number = shortMessage[i + 5] & 0xFF;
+                }
+            }
+        } else if (event.getOptionalParameters() != null) {
+            for (OptionalParameter parameter : event.getOptionalParameters()) {
+                if (parameter.tag == TAG_SAR_MSG_REF_NUM) {
+                    reference = intValue(parameter);
+                } else if (parameter.tag == TAG_SAR_TOTAL_SEGMENTS) {
+                    total = intValue(parameter);
+                } else if (parameter.tag == TAG_SAR_SEGMENT_SEQNUM) {
+                    number = intValue(parameter);
+                }
+            }
+        }
+        byte[] payload = payloadOffset == 0
+                ? shortMessage
+                : Arrays.copyOfRange(shortMessage, payloadOffset, shortMessage.length);
+
+        if (reference < 0 || total <= 1 || number < 1 || number > total) {
+            return new InboundMessage(event.getSourceAddr(), event.getDestAddress(),
+                    decode(payload, event.getDataCoding()), 1, event.getReceivedTime());
+        }
+        return addSegment(event, reference, total, number, payload);
+    }
+
+    /**
+     * Incomplete messages dropped by timeout or limits since start.
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public synchronized int getIncomplete() {
+        return partials.size();
+    }
+
+    private InboundMessage addSegment(DeliverSmEvent event, int reference, int total, int number, byte[] payload)
+            throws UnsupportedEncodingException {
+        String key = event.getSourceAddr() + '/' + reference + '/' + total;
+        long now = event.getReceivedTime();
+        Partial partial;
+        synchronized (this) {
+            expire(now);
+            partial = partials.get(key);
+            if (partial == null) {
+                partial = new Partial(total, event.getDataCoding());
+                partials.put(key, partial);
+            }
+            byte[] previous = partial.segments[number - 1];
+            if (previous == null) {
+                partial.received++;
+            } else {
+                //segment sent again
+                partial.bytes -= previous.length;
+                bytes -= previous.length;
+            }
+            partial.segments[number - 1] = payload;
+            partial.bytes += payload.length;
+            partial.lastTime = now;
+            bytes += payload.length;
+
+            if (partial.received < total) {
+                evictOverLimits();
+                return null;
+            }
+            partials.remove(key);
+            bytes -= partial.bytes;
+        }
+
+        byte[] joined = new byte[partial.bytes];
+        int position = 0;
+        for (byte[] segment : partial.segments) {
+            System.arraycopy(segment, 0, joined, position, segment.length);
+            position += segment.length;
+        }
+        return new InboundMessage(event.getSourceAddr(), event.getDestAddress(),
+                decode(joined, partial.dataCoding), total, now);
+    }
+
+    /**
+     * The least recently updated messages are at the head.
+     */
+    private void expire(long now) {
+        Iterator<Map.Entry<String, Partial>> iterator = partials.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Partial> eldest = iterator.next();
+            if (now - eldest.getValue().lastTime <= timeout) {
+                break;
+            }
+            drop(iterator, eldest, "timed out");
+        }
+    }
+
+    private void evictOverLimits() {
+        Iterator<Map.Entry<String, Partial>> iterator = partials.entrySet().iterator();
+        while ((partials.size() > maxMessages || bytes > maxBytes) && iterator.hasNext()) {
+            drop(iterator, iterator.next(), "evicted");
+        }
+    }
+
+    private void drop(Iterator<Map.Entry<String, Partial>> iterator, Map.Entry<String, Partial> entry, String reason) {
+        Partial partial = entry.getValue();
+        iterator.remove();
+        bytes -= partial.bytes;
+        dropped.increment();
+        logger.warn(String.format("incomplete message %s %s, received %s of %s segments",
+                entry.getKey(), reason, partial.received, partial.segments.length));
+    }
+
+    private static String decode(byte[] payload, byte dataCoding) throws UnsupportedEncodingException {
+        LatinEncodingType latinEncodingType = dataCoding == LATIN_8859_1
+                ? LatinEncodingType.LATIN_ISO8859_1
+                : LatinEncodingType.GSM_0338;
+        return TextUtils.convertByteToString(payload, dataCoding, latinEncodingType);
+    }
+
+    private static byte[] getMessagePayload(OptionalParameter[] optionalParameters) {
+        if (optionalParameters != null) {
+            for (OptionalParameter parameter : optionalParameters) {
+                if (parameter.tag == TAG_MESSAGE_PAYLOAD && parameter instanceof OptionalParameter.OctetString) {
+                    return ((OptionalParameter.OctetString) parameter).getValue();
+                }
+            }
+        }
+        return new byte[0];
+    }
+
+    private static int intValue(OptionalParameter parameter) {
+        if (parameter instanceof OptionalParameter.Byte) {
+            return ((OptionalParameter.Byte) parameter).getValue() & 0xFF;
+        } else if (parameter instanceof OptionalParameter.Short) {
+            return ((OptionalParameter.Short) parameter).getValue() & 0xFFFF;
+        } else if (parameter instanceof OptionalParameter.Int) {
+            return ((OptionalParameter.Int) parameter).getValue();
+        }
+        return -1;
+    }
+
+    private static final class Partial {
+
+        private final byte[][] segments;
+        private final byte dataCoding;
+        private int received;
+        private int bytes;
+        private long lastTime;
+
+        private Partial(int total, byte dataCoding) {
+            this.segments = new byte[total][];
+            this.dataCoding = dataCoding;
+        }
+    }
+}
@@ -1,59 +1,156 @@
 package net.smpp.client.simple.service;
 
-import org.apache.commons.lang.exception.ExceptionUtils;
+import net.smpp.client.simple.domain.Correlation;
+import net.smpp.client.simple.domain.InboundMessage;
+import net.smpp.client.simple.domain.InboundRecord;
+import net.smpp.client.simple.enums.InboundType;
+import net.smpp.client.simple.enums.OverflowPolicy;
+import net.smpp.client.simple.enums.WaitStrategy;
 import org.apache.log4j.Logger;
+import org.jsmpp.SMPPConstant;
 import org.jsmpp.bean.*;
 import org.jsmpp.extra.ProcessRequestException;
 import org.jsmpp.session.DataSmResult;
 import org.jsmpp.session.MessageReceiverListener;
 import org.jsmpp.session.Session;
-import org.jsmpp.util.InvalidDeliveryReceiptException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.UnsupportedEncodingException;
-import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Processes deliver_sm either on the session thread before deliver_sm_resp (threads = 0), or hands it off:
+ * session thread only copies the fields into ring buffer of a processing thread and deliver_sm_resp goes at once,
+ * so bursts of receipts don't slow down responses. deliver_sm of the same source address go to the same thread
+ * and keep their order. When the ring is full {@link OverflowPolicy} decides.
+ * Receipts are parsed by {@link DeliveryReceiptParser} into receipt reused by the thread and matched
+ * with sent segments by {@link CorrelationStore}, segments of other messages are joined by {@link MessageReassembler}.
+ * Receipts and complete messages are written to {@link InboundArchive}.
+ */
 @Component
 class MessageReceiver implements MessageReceiverListener {
 
+    private static final int OVERFLOW_LOG_INTERVAL = 1000; //every n-th overflow is logged
+
     private Logger logger = Logger.getLogger(getClass());
 
+    private final DeliverSmRing[] rings;
+    private final OverflowPolicy overflowPolicy;
+    private final DeliveryReceiptParser receiptParser;
+    private final CorrelationStore correlationStore;
+    private final MessageReassembler messageReassembler;
+    private final InboundArchive archive;
+    private final ThreadLocal<ParsedReceipt> receipts = ThreadLocal.withInitial(ParsedReceipt::new);
+    private final LongAdder overflows = new LongAdder();
+
+    @Autowired
+    public MessageReceiver(CorrelationStore correlationStore,
+                           MessageReassembler messageReassembler,
+                           InboundArchive archive,
+                           @Value("${smpp.receiver.threads:0}") int threads,
+                           @Value("${smpp.receiver.ring.size:4096}") int ringSize,
+                           @Value("${smpp.receiver.wait.strategy:BLOCKING}") WaitStrategy waitStrategy,
+                           @Value("${smpp.receiver.overflow:REJECT}") OverflowPolicy overflowPolicy,
+                           @Value("${smpp.receipt.timezone:}") String receiptTimeZone) {
+        this.correlationStore = correlationStore;
+        this.messageReassembler = messageReassembler;
+        this.archive = archive;
+        this.overflowPolicy = overflowPolicy;
+        this.receiptParser = new DeliveryReceiptParser(receiptTimeZone.isEmpty()
+                ? TimeZone.getDefault()
+                : TimeZone.getTimeZone(receiptTimeZone));
+        this.rings = new DeliverSmRing[threads];
+        for (int i = 0; i < threads; i++) {
+            rings[i] = new DeliverSmRing("deliver-sm-" + i, ringSize, waitStrategy, this::process);
+        }
+    }
+
     @Override
     public void onAcceptDeliverSm(DeliverSm deliverSm) throws ProcessRequestException {
-        if (MessageType.SMSC_DEL_RECEIPT.containedIn(deliverSm.getEsmClass())) {
-            try {
-                DeliveryReceipt delReceipt = deliverSm.getShortMessageAsDeliveryReceipt();
-                String hexMessageId = delReceipt.getId();
-                String source = deliverSm.getSourceAddr();
+        if (rings.length == 0) {
+            DeliverSmEvent event = new DeliverSmEvent();
+            event.copy(deliverSm);
+            process(event);
+            return;
+        }
+
+        DeliverSmRing ring = rings[partition(deliverSm.getSourceAddr())];
+        if (ring.tryPublish(deliverSm)) {
+            return;
+        }
+        overflows.increment();
+        long count = overflows.sum();
+        if (count % OVERFLOW_LOG_INTERVAL == 1) {
+            logger.warn(String.format("deliver_sm ring is full, policy %s, overflows %s, backlog %s",
+                    overflowPolicy, count, ring.getBacklog()));
+        }
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    ring.publish(deliverSm);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ProcessRequestException("deliver_sm is not queued", SMPPConstant.STAT_ESME_RX_T_APPN);
+                }
+                break;
+            case DROP:
+                break;
+            default:
+                throw new ProcessRequestException("deliver_sm queue is full", SMPPConstant.STAT_ESME_RX_T_APPN);
+        }
+    }
 
-                OptionalParameter[] optionalParameters = deliverSm.getOptionalParameters();
-                String parametersCollect = "";
+    /**
+     * deliver_sm which didn't fit into ring buffer since start.
+     */
+    public long getOverflows() {
+        return overflows.sum();
+    }
 
-                parametersCollect = Arrays.stream(optionalParameters)
-                        .map(v -> {
-                            try {
-                                return "[hex tag=" + Integer.toHexString(v.tag) + "] [value=" + new String(v.serialize(), "UTF-8").trim() + "]" + System.lineSeparator();
-                            } catch (UnsupportedEncodingException e) {
-                                logger.error(e.getMessage(), e);
-                                return "";
-                            }
-                        })
-                        .collect(Collectors.joining());
+    private int partition(String sourceAddr) {
+        int hash = sourceAddr == null ? 0 : sourceAddr.hashCode();
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % rings.length;
+    }
 
-                logger.info("delivery receipt: messageId=" + hexMessageId + System.lineSeparator() +
-                        "source: " + source + System.lineSeparator() +
-                        "text=" + delReceipt + System.lineSeparator() +
-                        parametersCollect + System.lineSeparator());
-            } catch (InvalidDeliveryReceiptException e) {
-                logger.error(e.getMessage(), e);
+    private void process(DeliverSmEvent event) {
+        if (MessageType.SMSC_DEL_RECEIPT.containedIn(event.getEsmClass())) {
+            ParsedReceipt receipt = receipts.get();
+            if (receiptParser.parse(event.getShortMessage(), event.getOptionalParameters(), receipt)) {
+                //entry is kept for intermediate receipts, the final one comes later
+                boolean isFinal = receipt.getState() != null && receipt.getState().isFinal();
+                Correlation correlation = correlationStore.find(receipt, isFinal);
+                logger.info("delivery receipt: " + receipt + ", source: " + event.getSourceAddr() + ", " +
+                        (correlation == null ? "sent segment is not known" : correlation));
+                archive.append(new InboundRecord(InboundType.RECEIPT, event.getReceivedTime(), receipt.getId(),
+                        nonNull(event.getSourceAddr()), nonNull(event.getDestAddress()), receipt.getState(),
+                        receipt.getError(), receipt.getDoneDate(),
+                        correlation == null ? -1 : correlation.getReference(), ""));
+            } else {
+                logger.error("delivery receipt without message id: " + new String(event.getShortMessage()));
             }
         } else {
-            // regular short message
-            logger.info("receiving message: " + new String(deliverSm.getShortMessage()));
+            // regular short message, it is logged when all segments are received
+            try {
+                InboundMessage message = messageReassembler.add(event);
+                if (message != null) {
+                    logger.info("receiving message: " + message);
+                    archive.append(new InboundRecord(InboundType.MESSAGE, message.getReceivedTime(), "",
+                            nonNull(message.getSourceAddr()), nonNull(message.getDestAddress()), null,
+                            ParsedReceipt.NO_VALUE, ParsedReceipt.NO_DATE, -1, message.getText()));
+                }
+            } catch (UnsupportedEncodingException e) {
+                logger.error(e.getMessage(), e);
+            }
         }
     }
 
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
     @Override
     public void onAcceptAlertNotification(AlertNotification alertNotification) {
         logger.info("Received AlertNotification");
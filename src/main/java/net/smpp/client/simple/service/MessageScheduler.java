@@ -0,0 +1,278 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.SubmitResult;
+import net.smpp.client.simple.enums.MessageLane;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static net.smpp.client.simple.service.OutboundJournal.NOT_JOURNALED;
+
+/**
+ * Queues of messages by {@link MessageLane} in front of {@link MessageSender}, one dispatcher thread takes
+ * the next message and sends it over a bind of the pool.
+ * <p>
+ * Transactional lane is taken whenever it has messages, other lanes share sending by their weights
+ * (smooth weighted round robin), so campaigns delay a time-critical message by one message at most:
+ * dispatcher waits for rate limits and submit window only after the message is chosen.
+ * Message whose validity period passed while it was queued is dropped, SMSC would not deliver it anyway.
+ * Lanes are bounded, enqueue waits while the lane is full.
+ * <p>
+ * Messages journaled and not acknowledged before the start are queued again in their lanes,
+ * their validity period counts from the time they were journaled.
+ */
+@Component
+public class MessageScheduler {
+
+    private static final MessageLane[] LANES = MessageLane.values();
+    private static final long NO_SESSION_PAUSE = 1000; //millis
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final MessageSender messageSender;
+    private final SessionBinder sessionBinder;
+    private final OutboundJournal journal;
+    private final int laneCapacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<Entry>[] queues;
+    private final int[] currentWeights = new int[LANES.length];
+    private final LongAdder expired = new LongAdder();
+    private int queued;
+
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public MessageScheduler(MessageSender messageSender,
+                            SessionBinder sessionBinder,
+                            OutboundJournal journal,
+                            @Value("${smpp.lane.capacity:10000}") int laneCapacity) {
+        this.messageSender = messageSender;
+        this.sessionBinder = sessionBinder;
+        this.journal = journal;
+        this.laneCapacity = laneCapacity;
+        this.queues = new ArrayDeque[LANES.length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
+
+        Thread dispatcher = new Thread(this::dispatch, "message-scheduler");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queues message, waits while the lane is full.
+     *
+     * @param journalRecord message encoded by {@link OutboundJournal#encode} with the same lane, it is journaled before queueing,
+     *                      null - message is not journaled
+     * @return future completed when all segments got final responses, it fails if any segment failed
+     * or with {@link TimeoutException} if the message expired in the queue
+     */
+    public CompletableFuture<Void> enqueue(CompiledMessage compiledMessage,
+                                           MessageLane lane,
+                                           byte[] journalRecord) throws InterruptedException, IOException {
+        long journalSequence = journalRecord == null ? NOT_JOURNALED : journal.append(journalRecord);
+        Entry entry = new Entry(compiledMessage, journalSequence, getDeadline(compiledMessage, System.currentTimeMillis()));
+        put(entry, lane);
+        return entry.future;
+    }
+
+    /**
+     * Queues messages which were journaled and not acknowledged before the start, only the first call queues them.
+     * Every message is acknowledged when it is sent, expired or failed, as the messages of {@link #enqueue}.
+     *
+     * @return count of queued messages
+     */
+    public int resendJournaled() {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        int replayed = journal.replay((dataMessage, lane, journalSequence, appendTime) -> {
+            Entry entry;
+            try {
+                CompiledMessage compiledMessage = CompiledMessage.compile(dataMessage);
+                entry = new Entry(compiledMessage, journalSequence, getDeadline(compiledMessage, appendTime));
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+                journal.acknowledge(journalSequence);
+                return;
+            }
+            //message left in the journal unqueued would hold the checkpoint until restart
+            while (true) {
+                try {
+                    put(entry, lane);
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        });
+        if (interrupted.get()) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info(String.format("queued %s journaled messages", replayed));
+        return replayed;
+    }
+
+    private void put(Entry entry, MessageLane lane) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            ArrayDeque<Entry> queue = queues[lane.ordinal()];
+            while (queue.size() >= laneCapacity) {
+                notFull.await();
+            }
+            queue.add(entry);
+            queued++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param startTime epoch millis the validity period counts from
+     * @return System.nanoTime() when validity period ends, 0 - no end
+     */
+    private static long getDeadline(CompiledMessage compiledMessage, long startTime) {
+        if (compiledMessage.getValidityPeriodSeconds() <= 0) {
+            return 0;
+        }
+        long left = TimeUnit.SECONDS.toMillis(compiledMessage.getValidityPeriodSeconds())
+                - (System.currentTimeMillis() - startTime);
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(left);
+    }
+
+    public int getQueued(MessageLane lane) {
+        lock.lock();
+        try {
+            return queues[lane.ordinal()].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Messages dropped since start because their validity period passed in the queue.
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    private void dispatch() {
+        while (true) {
+            try {
+                Entry entry = take();
+                if (entry.deadline != 0 && System.nanoTime() - entry.deadline > 0) {
+                    drop(entry);
+                    continue;
+                }
+                send(entry);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    private void send(Entry entry) throws InterruptedException {
+        BoundSession boundSession;
+        while ((boundSession = sessionBinder.nextSession()) == null) {
+            if (entry.deadline != 0 && System.nanoTime() - entry.deadline > 0) {
+                drop(entry);
+                return;
+            }
+            logger.error("smpp session not connected");
+            TimeUnit.MILLISECONDS.sleep(NO_SESSION_PAUSE);
+        }
+
+        List<CompletableFuture<SubmitResult>> futures;
+        try {
+            futures = messageSender.sendMessageAsync(boundSession, entry.compiledMessage, entry.journalSequence);
+        } catch (RuntimeException e) {
+            journal.acknowledge(entry.journalSequence);
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete((result, e) -> {
+            if (e == null) {
+                entry.future.complete(null);
+            } else {
+                entry.future.completeExceptionally(e);
+            }
+        });
+    }
+
+    private void drop(Entry entry) {
+        expired.increment();
+        journal.acknowledge(entry.journalSequence);
+        logger.warn(String.format("message to %s expired in queue, validity period %s s",
+                entry.compiledMessage.getDestinationAddr(), entry.compiledMessage.getValidityPeriodSeconds()));
+        entry.future.completeExceptionally(new TimeoutException("validity period passed in queue"));
+    }
+
+    private Entry take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queued == 0) {
+                notEmpty.await();
+            }
+            Entry entry = queues[nextLane()].poll();
+            queued--;
+            notFull.signalAll();
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Strict priority lane if it has messages, otherwise smooth weighted round robin over non-empty lanes:
+     * every lane gains its weight, the lane with the most is chosen and pays the total weight.
+     */
+    private int nextLane() {
+        int totalWeight = 0;
+        int selected = -1;
+        for (int i = 0; i < LANES.length; i++) {
+            if (queues[i].isEmpty()) {
+                continue;
+            }
+            if (LANES[i].isStrictPriority()) {
+                return i;
+            }
+            currentWeights[i] += LANES[i].getWeight();
+            totalWeight += LANES[i].getWeight();
+            if (selected < 0 || currentWeights[i] > currentWeights[selected]) {
+                selected = i;
+            }
+        }
+        currentWeights[selected] -= totalWeight;
+        return selected;
+    }
+
+    private static final class Entry {
+
+        private final CompiledMessage compiledMessage;
+        private final long journalSequence;
+        //System.nanoTime() when validity period ends, 0 - no end
+        private final long deadline;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Entry(CompiledMessage compiledMessage, long journalSequence, long deadline) {
+            this.compiledMessage = compiledMessage;
+            this.journalSequence = journalSequence;
+            this.deadline = deadline;
+        }
+    }
+}
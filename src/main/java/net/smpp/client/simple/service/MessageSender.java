@@ -1,146 +1,223 @@
 package net.smpp.client.simple.service;
 
+import net.smpp.client.simple.domain.BroadcastResult;
 import net.smpp.client.simple.domain.DataMessage;
-import net.smpp.client.simple.domain.ServiceType;
-import net.smpp.client.simple.domain.UdhType;
-import net.smpp.client.simple.utils.TextUtils;
-import org.apache.commons.lang.exception.ExceptionUtils;
+import net.smpp.client.simple.domain.SubmitResult;
+import net.smpp.client.simple.enums.MessageLane;
 import org.apache.log4j.Logger;
-import org.jsmpp.bean.*;
+import org.jsmpp.InvalidResponseException;
+import org.jsmpp.PDUException;
+import org.jsmpp.bean.Address;
+import org.jsmpp.bean.ReplaceIfPresentFlag;
+import org.jsmpp.bean.UnsuccessDelivery;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ResponseTimeoutException;
 import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.SubmitMultiResult;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.Random;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static net.smpp.client.simple.domain.UdhType.*;
-import static org.jsmpp.SMPPConstant.ESMCLS_DEFAULT_MODE;
-import static org.jsmpp.SMPPConstant.ESMCLS_UDHI_INDICATOR_SET;
-import static org.jsmpp.bean.SMSCDeliveryReceipt.*;
+import static net.smpp.client.simple.service.OutboundJournal.NOT_JOURNALED;
+import static net.smpp.client.simple.utils.Constants.MAX_SUBMIT_MULTI_DESTINATIONS;
 
 @Component
 public class MessageSender {
 
+    private static final ReplaceIfPresentFlag DONT_REPLACE = new ReplaceIfPresentFlag((byte) 0);
+
     private Logger logger = Logger.getLogger(getClass());
 
-    public void sendMessage(SMPPSession session,
-                            DataMessage dataMessage) {
-        try {
-            byte encoding = TextUtils.determineEncodingStatus(dataMessage.getText(), dataMessage.getLatinEncodingType());
-            String[] partsMessage = TextUtils.getPartsOfMessage(dataMessage.getText(), dataMessage.getLatinEncodingType());
+    private final OutboundJournal journal;
+    private final CorrelationStore correlationStore;
+    //reference of every sent message, unique between runs unless more than 1000 messages per milli are sent
+    private final AtomicLong nextReference = new AtomicLong(System.currentTimeMillis() * 1000);
 
-            byte refNum = (byte) new Random().nextInt();
+    @Autowired
+    public MessageSender(OutboundJournal journal, CorrelationStore correlationStore) {
+        this.journal = journal;
+        this.correlationStore = correlationStore;
+    }
 
-            byte totalSegments = (byte) partsMessage.length;
-            OptionalParameter sarMsgRefNum = OptionalParameters.newSarMsgRefNum(refNum);
-            OptionalParameter sarTotalSegments = OptionalParameters.newSarTotalSegments(totalSegments);
+    /**
+     * Sends segments through the submit window of the bind without waiting for responses,
+     * blocks while the window is full. All segments go over the same bind.
+     *
+     * @return futures of segments in their order
+     */
+    public List<CompletableFuture<SubmitResult>> sendMessageAsync(BoundSession boundSession,
+                                                                  CompiledMessage compiledMessage) throws InterruptedException {
+        return sendMessageAsync(boundSession, compiledMessage, NOT_JOURNALED);
+    }
 
-            for (int i = 0; i < totalSegments; i++) {
-                byte[] message;
-                UdhType udhType = dataMessage.getUdhType();
+    /**
+     * Appends journal record of the message before sending, see {@link #sendMessageAsync(BoundSession, CompiledMessage)}.
+     *
+     * @param journalRecord message encoded by {@link OutboundJournal#encode(DataMessage, MessageLane)}
+     */
+    public List<CompletableFuture<SubmitResult>> sendMessageAsync(BoundSession boundSession,
+                                                                  CompiledMessage compiledMessage,
+                                                                  byte[] journalRecord) throws InterruptedException, IOException {
+        return sendMessageAsync(boundSession, compiledMessage, journal.append(journalRecord));
+    }
 
-                if (udhType == udh_8bit || udhType == udh_16bit) {
-                    message = TextUtils.addUdh(partsMessage[i], (byte) (i + 1), totalSegments, refNum, encoding, udhType, dataMessage.getLatinEncodingType());
+    /**
+     * @param journalSequence record of the message appended to journal before, it is acknowledged when message is done
+     */
+    List<CompletableFuture<SubmitResult>> sendMessageAsync(BoundSession boundSession,
+                                                           CompiledMessage compiledMessage,
+                                                           long journalSequence) throws InterruptedException {
+        long reference = nextReference.incrementAndGet();
+        ConcatReferenceAllocator referenceAllocator = boundSession.getReferenceAllocator();
+        int refNum = referenceAllocator.allocate(compiledMessage);
+
+        List<CompletableFuture<SubmitResult>> futures = new ArrayList<>(compiledMessage.getTotalSegments());
+        for (int i = 0; i < compiledMessage.getTotalSegments(); i++) {
+            int index = i;
+            CompletableFuture<SubmitResult> future = boundSession.submit(compiledMessage, i, refNum);
+            future.whenComplete((result, e) -> {
+                if (e == null) {
+                    correlationStore.put(result.getMessageId(), reference,
+                            System.currentTimeMillis() - result.getResponseTimeMillis(), index);
+                    //message_id is logged as SMSC gave it, it isn't always hex
+                    logger.info(String.format("sent, reference=%s, message_id=%s, response time=%s ms",
+                            reference, result.getMessageId(), result.getResponseTimeMillis()));
                 } else {
-                    message = TextUtils.convertStringToByte(partsMessage[i], encoding, dataMessage.getLatinEncodingType());
+                    logger.error(e.getMessage(), e);
                 }
+            });
+            futures.add(future);
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .whenComplete((result, e) -> {
+                    referenceAllocator.release(compiledMessage, refNum);
+                    journal.acknowledge(journalSequence);
+                });
+        return futures;
+    }
 
-                OptionalParameter sarSegmentSeqnum = OptionalParameters.newSarSegmentSeqnum(i + 1);
-
-                ServiceType serviceType = dataMessage.getServiceType();
-                Byte sourceAddrTon = dataMessage.getSourceAddrTon();
-                Byte sourceAddrNpi = dataMessage.getSourceAddrNpi();
-                String alphaName = dataMessage.getAlphaName();
-                Byte destAddrTon = dataMessage.getDestAddrTon();
-                Byte destAddrNpi = dataMessage.getDestAddrNpi();
-                String phone = dataMessage.getPhone();
-                Integer validityPeriod = dataMessage.getValidityPeriod();
-                SMSCDeliveryReceipt smscDeliveryReceipt = dataMessage.getRegisteredDelivery() == 1 ? SUCCESS_FAILURE : DEFAULT;
-
-                try {
-                    String messageId;
-
-                    switch (udhType) {
-                        case udh_8bit:
-                        case udh_16bit:
-                            messageId = session.submitShortMessage(serviceType.getStatus(),
-                                    TypeOfNumber.valueOf(sourceAddrTon),
-                                    NumberingPlanIndicator.valueOf(sourceAddrNpi),
-                                    alphaName,
-                                    TypeOfNumber.valueOf(destAddrTon),
-                                    NumberingPlanIndicator.valueOf(destAddrNpi),
-                                    phone,
-                                    getEsmClass(udhType),
-                                    (byte) 0,
-                                    (byte) 1,
-                                    "",
-                                    TextUtils.generateSmsValidityPeriod(validityPeriod),
-                                    new RegisteredDelivery(smscDeliveryReceipt),
-                                    (byte) 0,
-                                    DataCodings.newInstance(encoding),
-                                    (byte) 0,
-                                    message);
-
-                            break;
-
-                        case tlv:
-                            messageId = session.submitShortMessage(serviceType.getStatus(),
-                                    TypeOfNumber.valueOf(sourceAddrTon),
-                                    NumberingPlanIndicator.valueOf(sourceAddrNpi),
-                                    alphaName,
-                                    TypeOfNumber.valueOf(destAddrTon),
-                                    NumberingPlanIndicator.valueOf(destAddrNpi),
-                                    phone,
-                                    getEsmClass(udhType),
-                                    (byte) 0,
-                                    (byte) 1,
-                                    "",
-                                    TextUtils.generateSmsValidityPeriod(validityPeriod),
-                                    new RegisteredDelivery(smscDeliveryReceipt),
-                                    (byte) 0,
-                                    DataCodings.newInstance(encoding),
-                                    (byte) 0,
-                                    message,
-                                    sarMsgRefNum,
-                                    sarSegmentSeqnum,
-                                    sarTotalSegments);
-
-                            break;
-
-                        default:
-                            messageId = session.submitShortMessage(serviceType.getStatus(),
-                                    TypeOfNumber.valueOf(sourceAddrTon),
-                                    NumberingPlanIndicator.valueOf(sourceAddrNpi),
-                                    alphaName,
-                                    TypeOfNumber.valueOf(destAddrTon),
-                                    NumberingPlanIndicator.valueOf(destAddrNpi),
-                                    phone,
-                                    getEsmClass(udhType),
-                                    (byte) 0,
-                                    (byte) 1,
-                                    "",
-                                    TextUtils.generateSmsValidityPeriod(validityPeriod),
-                                    new RegisteredDelivery(smscDeliveryReceipt),
-                                    (byte) 0,
-                                    DataCodings.newInstance(encoding),
-                                    (byte) 0,
-                                    message);
-
-                    }
-
-                    logger.info(String.format("sent, message_id hex=%s, long=%s", Long.valueOf(messageId, 16), messageId));
-                } catch (Exception e) {
+    /**
+     * Sends one text to many destinations by submit_multi, up to 254 destinations per pdu.
+     * Text is encoded and split once, destination address of the compiled message is not used,
+     * its ton and npi are used for all destinations. Segments of all groups go over the same bind.
+     *
+     * @return futures of groups of destinations in their order
+     */
+    public List<CompletableFuture<BroadcastResult>> broadcast(BoundSession boundSession,
+                                                              CompiledMessage compiledMessage,
+                                                              List<String> destinationAddrs) throws InterruptedException {
+        List<CompletableFuture<BroadcastResult>> futures = new ArrayList<>();
+        for (int from = 0; from < destinationAddrs.size(); from += MAX_SUBMIT_MULTI_DESTINATIONS) {
+            List<String> group = new ArrayList<>(destinationAddrs.subList(from,
+                    Math.min(destinationAddrs.size(), from + MAX_SUBMIT_MULTI_DESTINATIONS)));
+            CompletableFuture<BroadcastResult> future = broadcastGroup(boundSession, compiledMessage, group);
+            future.whenComplete((result, e) -> {
+                if (e == null) {
+                    logger.info(String.format("broadcast to %s destinations, message_id=%s, unsuccessful=%s",
+                            result.getDestinationAddrs().size(), result.getMessageIds(), result.getUnsuccessfulDestinations()));
+                } else {
                     logger.error(e.getMessage(), e);
                 }
-            }
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
+            });
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    private CompletableFuture<BroadcastResult> broadcastGroup(BoundSession boundSession,
+                                                              CompiledMessage compiledMessage,
+                                                              List<String> group) throws InterruptedException {
+        Address[] destinations = new Address[group.size()];
+        for (int i = 0; i < destinations.length; i++) {
+            destinations[i] = new Address(compiledMessage.getDestAddrTon(), compiledMessage.getDestAddrNpi(), group.get(i));
         }
+
+        ConcatReferenceAllocator referenceAllocator = boundSession.getReferenceAllocator();
+        int refNum = referenceAllocator.allocate(compiledMessage);
+        List<CompletableFuture<SubmitMultiResult>> segments = new ArrayList<>(compiledMessage.getTotalSegments());
+        for (int i = 0; i < compiledMessage.getTotalSegments(); i++) {
+            segments.add(boundSession.submitMulti(compiledMessage, destinations, i, refNum));
+        }
+        return CompletableFuture.allOf(segments.toArray(new CompletableFuture[0]))
+                .whenComplete((result, e) -> referenceAllocator.release(compiledMessage, refNum))
+                .thenApply(result -> toBroadcastResult(group, segments));
     }
 
-    private ESMClass getEsmClass(UdhType udhType) {
-        if (udhType == udh_8bit || udhType == udh_16bit) {
-            return new ESMClass(ESMCLS_UDHI_INDICATOR_SET);
+    /**
+     * Destination is unsuccessful if any segment wasn't accepted for it, error status of the first such segment is kept.
+     */
+    private static BroadcastResult toBroadcastResult(List<String> group, List<CompletableFuture<SubmitMultiResult>> segments) {
+        List<String> messageIds = new ArrayList<>(segments.size());
+        Map<String, Integer> unsuccessfulDestinations = new LinkedHashMap<>();
+        for (CompletableFuture<SubmitMultiResult> segment : segments) {
+            SubmitMultiResult result = segment.join();
+            messageIds.add(result.getMessageId());
+            if (result.getUnsuccessDeliveries() == null) {
+                continue;
+            }
+            for (UnsuccessDelivery unsuccessDelivery : result.getUnsuccessDeliveries()) {
+                unsuccessfulDestinations.putIfAbsent(unsuccessDelivery.getDestinationAddress().getAddress(),
+                        unsuccessDelivery.getErrorStatusCode());
+            }
         }
-        return new ESMClass(ESMCLS_DEFAULT_MODE);
+        return new BroadcastResult(messageIds, group, unsuccessfulDestinations);
+    }
+
+    static String submitSegment(SMPPSession session,
+                                CompiledMessage compiledMessage,
+                                int index,
+                                int refNum) throws PDUException, ResponseTimeoutException, InvalidResponseException,
+            NegativeResponseException, IOException {
+
+        return session.submitShortMessage(compiledMessage.getServiceType(),
+                compiledMessage.getSourceAddrTon(),
+                compiledMessage.getSourceAddrNpi(),
+                compiledMessage.getSourceAddr(),
+                compiledMessage.getDestAddrTon(),
+                compiledMessage.getDestAddrNpi(),
+                compiledMessage.getDestinationAddr(),
+                compiledMessage.getEsmClass(),
+                (byte) 0,
+                (byte) 1,
+                "",
+                compiledMessage.getValidityPeriod(),
+                compiledMessage.getRegisteredDelivery(),
+                (byte) 0,
+                compiledMessage.getDataCoding(),
+                (byte) 0,
+                compiledMessage.getSegment(index, refNum),
+                compiledMessage.getOptionalParameters(index, refNum));
+    }
+
+    static SubmitMultiResult submitMultiSegment(SMPPSession session,
+                                                CompiledMessage compiledMessage,
+                                                Address[] destinations,
+                                                int index,
+                                                int refNum) throws PDUException, ResponseTimeoutException,
+            InvalidResponseException, NegativeResponseException, IOException {
+
+        return session.submitMultiple(compiledMessage.getServiceType(),
+                compiledMessage.getSourceAddrTon(),
+                compiledMessage.getSourceAddrNpi(),
+                compiledMessage.getSourceAddr(),
+                destinations,
+                compiledMessage.getEsmClass(),
+                (byte) 0,
+                (byte) 1,
+                "",
+                compiledMessage.getValidityPeriod(),
+                compiledMessage.getRegisteredDelivery(),
+                DONT_REPLACE,
+                compiledMessage.getDataCoding(),
+                (byte) 0,
+                compiledMessage.getSegment(index, refNum),
+                compiledMessage.getOptionalParameters(index, refNum));
     }
 }
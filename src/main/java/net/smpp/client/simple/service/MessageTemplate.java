@@ -0,0 +1,244 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.DataMessage;
+import net.smpp.client.simple.domain.EncodingStatus;
+import net.smpp.client.simple.domain.TransliterationResult;
+import net.smpp.client.simple.domain.UdhType;
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.utils.TextUtils;
+import net.smpp.client.simple.utils.Transliterator;
+import net.smpp.client.simple.utils.encoding.CharsetEncoding;
+import net.smpp.client.simple.utils.encoding.Gsm0338Charset;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static net.smpp.client.simple.utils.Constants.ALPHA_UCS2;
+import static net.smpp.client.simple.utils.Constants.UCS2_ENCODING;
+
+/**
+ * Campaign text with ${name} placeholders, compiled once for many recipients.
+ * <p>
+ * Static fragments are transliterated (if message asks for it) and encoded once by charset detected for them.
+ * Transliteration of static text follows the rule of {@link TextUtils#transliterate}: if it doesn't save segments
+ * or UCS2, static text is kept as is and values are not transliterated either.
+ * Per recipient only variable values are encoded, then encoded fragments are joined and split into segments.
+ * Segment boundaries are not precomputed for static fragments: the joined bytes are split again for every recipient.
+ * Finding a boundary is one byte check per segment (escape or surrogate), so besides encoding of values the per
+ * recipient cost is copying the message bytes twice, into the joined array and into segments.
+ * If a value can't be encoded by charset of static fragments, the whole text goes through usual detection.
+ * National language tables chosen for static fragments are kept for all recipients, so for some values
+ * the message may take one segment more than with tables detected for the whole text.
+ */
+public final class MessageTemplate {
+
+    private static final String PLACEHOLDER_START = "${";
+    private static final String PLACEHOLDER_END = "}";
+    private static final Charset UCS2_CHARSET = Charset.forName(UCS2_ENCODING);
+
+    private final List<String> variableNames;
+    private final String[] staticTexts;
+    private final byte[][] staticFragments;
+    private final int[] placeholderVariables;
+    private final int staticLength;
+
+    private final LatinEncodingType latinEncodingType;
+    private final UdhType udhType;
+    private final Transliterator transliterator;
+    private final EncodingStatus staticEncodingStatus;
+    private final CharsetEncoding charsetEncoding;
+    private final CompiledMessage compiledTemplate;
+
+    private MessageTemplate(DataMessage dataMessage, List<String> variableNames, List<String> staticTexts, List<Integer> placeholderVariables) {
+        this.variableNames = Collections.unmodifiableList(variableNames);
+        this.latinEncodingType = dataMessage.getLatinEncodingType();
+        this.udhType = dataMessage.getUdhType();
+        this.transliterator = dataMessage.isTransliteration()
+                ? getTransliterator(String.join("", staticTexts), Transliterator.getInstance(latinEncodingType))
+                : null;
+
+        this.staticTexts = new String[staticTexts.size()];
+        StringBuilder staticText = new StringBuilder();
+        for (int i = 0; i < this.staticTexts.length; i++) {
+            String text = staticTexts.get(i);
+            //rules replace single chars, so fragments are transliterated as the joined text
+            this.staticTexts[i] = transliterator != null ? transliterator.transliterate(text) : text;
+            staticText.append(this.staticTexts[i]);
+        }
+        this.placeholderVariables = new int[placeholderVariables.size()];
+        for (int i = 0; i < this.placeholderVariables.length; i++) {
+            this.placeholderVariables[i] = placeholderVariables.get(i);
+        }
+
+        this.staticEncodingStatus = TextUtils.detectEncoding(staticText.toString(), latinEncodingType, udhType);
+        if (staticEncodingStatus.getDataCoding() == ALPHA_UCS2) {
+            this.charsetEncoding = null;
+        } else if (staticEncodingStatus.hasNationalLanguage()) {
+            this.charsetEncoding = Gsm0338Charset.forNationalLanguage(staticEncodingStatus.getLockingShift(), staticEncodingStatus.getSingleShift());
+        } else {
+            this.charsetEncoding = TextUtils.getCharsetEncoding(latinEncodingType);
+        }
+
+        this.staticFragments = new byte[this.staticTexts.length][];
+        int length = 0;
+        for (int i = 0; i < staticFragments.length; i++) {
+            staticFragments[i] = encodeStatic(this.staticTexts[i]);
+            length += staticFragments[i].length;
+        }
+        this.staticLength = length;
+        this.compiledTemplate = CompiledMessage.compile(dataMessage, staticEncodingStatus, new byte[0][]);
+    }
+
+    /**
+     * Parses text of the message, pdu fields of the message are shared by all recipients.
+     * Text which starts with "${" but has no closing "}" is kept as is.
+     */
+    public static MessageTemplate compile(DataMessage dataMessage) {
+        String text = dataMessage.getText();
+        List<String> variableNames = new ArrayList<>();
+        List<String> staticTexts = new ArrayList<>();
+        List<Integer> placeholderVariables = new ArrayList<>();
+
+        int currentPosition = 0;
+        int staticStart = 0;
+        while (true) {
+            int start = text.indexOf(PLACEHOLDER_START, currentPosition);
+            int end = start < 0 ? -1 : text.indexOf(PLACEHOLDER_END, start + PLACEHOLDER_START.length());
+            if (end < 0) {
+                break;
+            }
+            String name = text.substring(start + PLACEHOLDER_START.length(), end);
+            currentPosition = end + PLACEHOLDER_END.length();
+            if (name.isEmpty()) {
+                continue;
+            }
+            int variable = variableNames.indexOf(name);
+            if (variable < 0) {
+                variable = variableNames.size();
+                variableNames.add(name);
+            }
+            staticTexts.add(text.substring(staticStart, start));
+            placeholderVariables.add(variable);
+            staticStart = currentPosition;
+        }
+        staticTexts.add(text.substring(staticStart));
+        return new MessageTemplate(dataMessage, variableNames, staticTexts, placeholderVariables);
+    }
+
+    /**
+     * Names of placeholders in order of their first appearance, values are passed in the same order.
+     */
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    public EncodingStatus getStaticEncodingStatus() {
+        return staticEncodingStatus;
+    }
+
+    public CompiledMessage compile(String destinationAddr, Map<String, String> values) throws UnsupportedEncodingException {
+        String[] orderedValues = new String[variableNames.size()];
+        for (int i = 0; i < orderedValues.length; i++) {
+            String value = values.get(variableNames.get(i));
+            orderedValues[i] = value == null ? "" : value;
+        }
+        return compile(destinationAddr, orderedValues);
+    }
+
+    /**
+     * Message for one recipient, values are given in order of {@link #getVariableNames()}.
+     * Segments get concatenation udh with reference 0 as in {@link CompiledMessage#compile(DataMessage)}.
+     *
+     * @throws IllegalArgumentException if count of values doesn't match count of variables
+     */
+    public CompiledMessage compile(String destinationAddr, String... values) throws UnsupportedEncodingException {
+        if (values.length != variableNames.size()) {
+            throw new IllegalArgumentException(String.format("template has %s variables, but %s values are given",
+                    variableNames.size(), values.length));
+        }
+
+        String[] texts = values;
+        if (transliterator != null) {
+            texts = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                texts[i] = transliterator.transliterate(values[i]);
+            }
+        }
+
+        byte[][] encodedValues = new byte[texts.length][];
+        int[] encodedLengths = new int[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            String value = texts[i];
+            if (charsetEncoding == null) {
+                encodedValues[i] = value.getBytes(UCS2_CHARSET);
+                encodedLengths[i] = encodedValues[i].length;
+            } else if (charsetEncoding.isLatinEncoding(value)) {
+                //escape sequence takes 2 bytes at most
+                encodedValues[i] = new byte[value.length() * 2];
+                long result = charsetEncoding.encode(value, 0, value.length(), encodedValues[i], 0, encodedValues[i].length);
+                encodedLengths[i] = CharsetEncoding.produced(result);
+            } else {
+                return compileText(destinationAddr, texts);
+            }
+        }
+
+        int length = staticLength;
+        for (int variable : placeholderVariables) {
+            length += encodedLengths[variable];
+        }
+        byte[] message = new byte[length];
+        int position = 0;
+        for (int i = 0; i < staticFragments.length; i++) {
+            System.arraycopy(staticFragments[i], 0, message, position, staticFragments[i].length);
+            position += staticFragments[i].length;
+            if (i < placeholderVariables.length) {
+                int variable = placeholderVariables[i];
+                System.arraycopy(encodedValues[variable], 0, message, position, encodedLengths[variable]);
+                position += encodedLengths[variable];
+            }
+        }
+
+        EncodingStatus encodingStatus = new EncodingStatus(staticEncodingStatus.getDataCoding(), length, 0,
+                staticEncodingStatus.getLockingShift(), staticEncodingStatus.getSingleShift());
+        byte[][] segments = TextUtils.getSegmentsOfEncodedMessage(message, encodingStatus, udhType, 0, latinEncodingType);
+        encodingStatus = new EncodingStatus(encodingStatus.getDataCoding(), length, segments.length,
+                encodingStatus.getLockingShift(), encodingStatus.getSingleShift());
+        return compiledTemplate.personalize(destinationAddr, encodingStatus, segments);
+    }
+
+    /**
+     * Full text of the message for one recipient, values must be already transliterated.
+     */
+    private CompiledMessage compileText(String destinationAddr, String[] values) throws UnsupportedEncodingException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < staticTexts.length; i++) {
+            text.append(staticTexts[i]);
+            if (i < placeholderVariables.length) {
+                text.append(values[placeholderVariables[i]]);
+            }
+        }
+        EncodingStatus encodingStatus = TextUtils.detectEncoding(text.toString(), latinEncodingType, udhType);
+        byte[][] segments = TextUtils.getSegmentsOfMessage(text.toString(), encodingStatus, udhType, 0, latinEncodingType);
+        return compiledTemplate.personalize(destinationAddr, encodingStatus, segments);
+    }
+
+    /**
+     * @return null if transliteration of static text is dropped as it saves nothing
+     */
+    private Transliterator getTransliterator(String staticText, Transliterator transliterator) {
+        if (transliterator.transliterate(staticText) == staticText) {
+            //nothing to replace in static text, values may still have something
+            return transliterator;
+        }
+        TransliterationResult transliterationResult = TextUtils.transliterate(staticText, transliterator, latinEncodingType, udhType);
+        return transliterationResult.getText() == staticText ? null : transliterator;
+    }
+
+    private byte[] encodeStatic(String text) {
+        return charsetEncoding == null ? text.getBytes(UCS2_CHARSET) : charsetEncoding.convertStringToBytes(text);
+    }
+}
@@ -0,0 +1,494 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.DataMessage;
+import net.smpp.client.simple.domain.ServiceType;
+import net.smpp.client.simple.domain.UdhType;
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.enums.MessageLane;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of outbound messages in memory-mapped segment files, messages survive crash or restart
+ * of the client until they are acknowledged.
+ * <p>
+ * Record is [payload length][crc32 of payload][status][append time][payload], sequence number of the record is its offset
+ * in the journal. Acknowledgement sets status of the record in place. Flush thread forces dirty segments
+ * to disk once per flush interval for all records written in it (group commit), then moves checkpoint over
+ * acknowledged records and deletes segments behind the checkpoint. Records after the checkpoint which are not
+ * acknowledged are replayed on the next start, records lost in the last flush interval of a crash are not.
+ * <p>
+ * Journal is disabled if directory is not set, then {@link #append(byte[])} returns {@link #NOT_JOURNALED}.
+ */
+@Component
+public class OutboundJournal implements AutoCloseable {
+
+    public static final long NOT_JOURNALED = -1;
+
+    private static final String SEGMENT_PREFIX = "outbound-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_LENGTH = 17;
+    private static final int CRC_OFFSET = 4;
+    private static final int STATUS_OFFSET = 8;
+    private static final int TIME_OFFSET = 9;
+    //length of the record which says that the rest of the segment is empty
+    private static final int END_OF_SEGMENT = -1;
+    private static final byte PENDING = 0;
+    private static final byte ACKNOWLEDGED = 1;
+    private static final byte FORMAT_VERSION = 1;
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final File directory;
+    private final int segmentSize;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final AtomicBoolean replayed = new AtomicBoolean();
+    private FileChannel checkpointChannel;
+    private ScheduledExecutorService flushExecutor;
+    private Segment current;
+    private long checkpoint;
+    private long recoveredEnd;
+
+    @Autowired
+    public OutboundJournal(@Value("${smpp.journal.dir:}") String directory,
+                           @Value("${smpp.journal.segment.size:67108864}") int segmentSize,
+                           @Value("${smpp.journal.flush.interval:10}") long flushInterval) throws IOException {
+        this.directory = directory.isEmpty() ? null : new File(directory);
+        this.segmentSize = segmentSize;
+        if (this.directory == null) {
+            return;
+        }
+
+        open();
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Message as journal record, the same record may be appended many times.
+     *
+     * @param lane lane of the message scheduler, message is replayed into it
+     */
+    public static byte[] encode(DataMessage dataMessage, MessageLane lane) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(FORMAT_VERSION);
+            output.writeUTF(lane.name());
+            writeString(output, dataMessage.getAlphaName());
+            writeString(output, dataMessage.getPhone());
+            writeString(output, dataMessage.getText());
+            writeString(output, dataMessage.getUdhType() == null ? null : dataMessage.getUdhType().name());
+            writeString(output, dataMessage.getServiceType() == null ? null : dataMessage.getServiceType().name());
+            output.writeInt(dataMessage.getValidityPeriod() == null ? -1 : dataMessage.getValidityPeriod());
+            writeByte(output, dataMessage.getSourceAddrTon());
+            writeByte(output, dataMessage.getSourceAddrNpi());
+            writeByte(output, dataMessage.getDestAddrTon());
+            writeByte(output, dataMessage.getDestAddrNpi());
+            writeString(output, dataMessage.getLatinEncodingType() == null ? null : dataMessage.getLatinEncodingType().name());
+            output.writeInt(dataMessage.getRegisteredDelivery());
+            output.writeBoolean(dataMessage.isTransliteration());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void decode(byte[] record, long sequence, long appendTime, ReplayConsumer consumer) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        byte version = input.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unknown format of journal record: " + version);
+        }
+        MessageLane lane = toMessageLane(input.readUTF());
+        consumer.accept(decode(input), lane, sequence, appendTime);
+    }
+
+    private static DataMessage decode(DataInputStream input) throws IOException {
+        String alphaName = readString(input);
+        String phone = readString(input);
+        String text = readString(input);
+        String udhType = readString(input);
+        String serviceType = readString(input);
+        int validityPeriod = input.readInt();
+        return new DataMessage(alphaName,
+                phone,
+                text,
+                udhType == null ? null : UdhType.valueOf(udhType),
+                serviceType == null ? null : ServiceType.valueOf(serviceType),
+                validityPeriod < 0 ? null : validityPeriod,
+                readByte(input),
+                readByte(input),
+                readByte(input),
+                readByte(input),
+                toLatinEncodingType(readString(input)),
+                input.readInt(),
+                input.readBoolean());
+    }
+
+    /**
+     * Writes record to the journal, it becomes durable with the next flush.
+     *
+     * @return sequence number to acknowledge the record, {@link #NOT_JOURNALED} if journal is disabled
+     * @throws IllegalArgumentException if record doesn't fit in a segment
+     */
+    public synchronized long append(byte[] record) throws IOException {
+        if (directory == null) {
+            return NOT_JOURNALED;
+        }
+        if (HEADER_LENGTH + record.length + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException(String.format("record of %s bytes doesn't fit in journal segment of %s bytes",
+                    record.length, segmentSize));
+        }
+
+        MappedByteBuffer buffer = current.buffer;
+        if (buffer.remaining() < HEADER_LENGTH + record.length + Integer.BYTES) {
+            buffer.putInt(buffer.position(), END_OF_SEGMENT);
+            current.dirty = true;
+            current = openSegment(current.base + segmentSize);
+            segments.put(current.base, current);
+            buffer = current.buffer;
+        }
+
+        int position = buffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        buffer.position(position + HEADER_LENGTH);
+        buffer.put(record);
+        buffer.putInt(position + CRC_OFFSET, (int) crc.getValue());
+        buffer.put(position + STATUS_OFFSET, PENDING);
+        buffer.putLong(position + TIME_OFFSET, System.currentTimeMillis());
+        //length is written last, record with zero length is the end of the journal
+        buffer.putInt(position, record.length);
+        current.dirty = true;
+        return current.base + position;
+    }
+
+    /**
+     * Marks record as done: message is sent or failed for good, it isn't replayed after restart.
+     */
+    public synchronized void acknowledge(long sequence) {
+        if (sequence < 0 || sequence < checkpoint) {
+            return;
+        }
+        Map.Entry<Long, Segment> entry = segments.floorEntry(sequence);
+        if (entry == null) {
+            return;
+        }
+        Segment segment = entry.getValue();
+        segment.buffer.put((int) (sequence - segment.base) + STATUS_OFFSET, ACKNOWLEDGED);
+        segment.dirty = true;
+    }
+
+    /**
+     * Passes messages which were not acknowledged before the start to consumer with their sequence numbers,
+     * only the first call replays them. Consumer must acknowledge every message sooner or later,
+     * until then the checkpoint stays in front of it and segments after it are kept.
+     *
+     * @return count of replayed messages
+     */
+    public int replay(ReplayConsumer consumer) {
+        if (directory == null || !replayed.compareAndSet(false, true)) {
+            return 0;
+        }
+        int count = 0;
+        long sequence;
+        synchronized (this) {
+            sequence = checkpoint;
+        }
+        while (sequence < recoveredEnd) {
+            byte[] record;
+            long appendTime;
+            long recordSequence = sequence;
+            synchronized (this) {
+                Map.Entry<Long, Segment> entry = segments.floorEntry(sequence);
+                if (entry == null) {
+                    //segment behind the checkpoint is deleted
+                    sequence = checkpoint;
+                    continue;
+                }
+                Segment segment = entry.getValue();
+                int position = (int) (sequence - segment.base);
+                int length = segment.buffer.getInt(position);
+                if (length == END_OF_SEGMENT) {
+                    sequence = segment.base + segmentSize;
+                    continue;
+                }
+                sequence += HEADER_LENGTH + length;
+                if (segment.buffer.get(position + STATUS_OFFSET) == ACKNOWLEDGED) {
+                    continue;
+                }
+                appendTime = segment.buffer.getLong(position + TIME_OFFSET);
+                record = new byte[length];
+                ByteBuffer source = segment.buffer.duplicate();
+                source.position(position + HEADER_LENGTH);
+                source.get(record);
+            }
+
+            try {
+                decode(record, recordSequence, appendTime, consumer);
+                count++;
+            } catch (IOException e) {
+                logger.error(String.format("journal record %s skipped: %s", recordSequence, e.getMessage()), e);
+                acknowledge(recordSequence);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        checkpointChannel.close();
+    }
+
+    /**
+     * Forces records and acknowledgements to disk, moves the checkpoint and deletes segments behind it.
+     */
+    void flush() throws IOException {
+        List<Segment> dirtySegments = new ArrayList<>();
+        long newCheckpoint;
+        synchronized (this) {
+            newCheckpoint = findCheckpoint();
+            for (Segment segment : segments.values()) {
+                if (segment.dirty) {
+                    segment.dirty = false;
+                    dirtySegments.add(segment);
+                }
+            }
+        }
+
+        for (Segment segment : dirtySegments) {
+            segment.buffer.force();
+        }
+        if (newCheckpoint == checkpoint) {
+            return;
+        }
+
+        ByteBuffer checkpointBuffer = ByteBuffer.allocate(Long.BYTES);
+        checkpointBuffer.putLong(0, newCheckpoint);
+        checkpointChannel.write(checkpointBuffer, 0);
+        checkpointChannel.force(false);
+
+        List<Segment> obsoleteSegments = new ArrayList<>();
+        synchronized (this) {
+            checkpoint = newCheckpoint;
+            while (!segments.isEmpty() && segments.firstEntry().getValue() != current
+                    && segments.firstKey() + segmentSize <= newCheckpoint) {
+                obsoleteSegments.add(segments.pollFirstEntry().getValue());
+            }
+        }
+        for (Segment segment : obsoleteSegments) {
+            if (!segment.file.delete()) {
+                logger.warn("journal segment is not deleted: " + segment.file);
+            }
+        }
+    }
+
+    /**
+     * Offset of the first record which is not acknowledged yet.
+     */
+    private long findCheckpoint() {
+        long sequence = checkpoint;
+        long end = current.base + current.buffer.position();
+        while (sequence < end) {
+            Segment segment = segments.floorEntry(sequence).getValue();
+            int position = (int) (sequence - segment.base);
+            int length = segment.buffer.getInt(position);
+            if (length == END_OF_SEGMENT) {
+                sequence = segment.base + segmentSize;
+            } else if (segment.buffer.get(position + STATUS_OFFSET) == ACKNOWLEDGED) {
+                sequence += HEADER_LENGTH + length;
+            } else {
+                break;
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Reads checkpoint, maps segments after it and finds the end of the journal.
+     * Record which was written partially before crash (bad crc) and everything after it is erased.
+     */
+    private void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create journal directory " + directory);
+        }
+        File checkpointFile = new File(directory, CHECKPOINT_FILE);
+        checkpointChannel = new RandomAccessFile(checkpointFile, "rw").getChannel();
+        if (checkpointChannel.size() >= Long.BYTES) {
+            ByteBuffer checkpointBuffer = ByteBuffer.allocate(Long.BYTES);
+            checkpointChannel.read(checkpointBuffer, 0);
+            checkpoint = checkpointBuffer.getLong(0);
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        TreeMap<Long, File> segmentFiles = new TreeMap<>();
+        for (File file : files == null ? new File[0] : files) {
+            String name = file.getName();
+            segmentFiles.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+        }
+        for (Map.Entry<Long, File> entry : segmentFiles.entrySet()) {
+            if (entry.getKey() + segmentSize <= checkpoint || entry.getKey() > checkpoint && segments.isEmpty()) {
+                //behind the checkpoint or not contiguous with it
+                entry.getValue().delete();
+            } else {
+                segments.put(entry.getKey(), openSegment(entry.getKey()));
+            }
+        }
+        if (segments.isEmpty()) {
+            segments.put(checkpoint, openSegment(checkpoint));
+        }
+
+        long sequence = checkpoint;
+        while (true) {
+            Segment segment = segments.floorEntry(sequence).getValue();
+            int position = (int) (sequence - segment.base);
+            int length = position + Integer.BYTES <= segmentSize ? segment.buffer.getInt(position) : 0;
+            if (length == END_OF_SEGMENT && segments.containsKey(segment.base + segmentSize)) {
+                sequence = segment.base + segmentSize;
+                continue;
+            }
+            if (length <= 0 || position + HEADER_LENGTH + length > segmentSize || !isValid(segment.buffer, position, length)) {
+                if (length != 0) {
+                    logger.warn(String.format("journal record %s is broken, journal is truncated", sequence));
+                    erase(segment.buffer, position);
+                }
+                segment.buffer.position(position);
+                current = segment;
+                break;
+            }
+            sequence += HEADER_LENGTH + length;
+        }
+        //segments after the end are left from a crash during rollover
+        while (segments.lastEntry().getValue() != current) {
+            segments.pollLastEntry().getValue().file.delete();
+        }
+        recoveredEnd = current.base + current.buffer.position();
+        logger.info(String.format("journal %s opened, checkpoint %s, end %s", directory, checkpoint, recoveredEnd));
+    }
+
+    private Segment openSegment(long base) throws IOException {
+        File file = new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(segmentSize);
+            return new Segment(base, file, randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+    }
+
+    private static boolean isValid(MappedByteBuffer buffer, int position, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(position + HEADER_LENGTH);
+        payload.limit(position + HEADER_LENGTH + length);
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(position + CRC_OFFSET);
+    }
+
+    private static void erase(MappedByteBuffer buffer, int position) {
+        for (int i = position; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeByte(DataOutputStream output, Byte value) throws IOException {
+        output.writeShort(value == null ? -1 : value & 0xFF);
+    }
+
+    private static Byte readByte(DataInputStream input) throws IOException {
+        short value = input.readShort();
+        return value < 0 ? null : (byte) value;
+    }
+
+    private static LatinEncodingType toLatinEncodingType(String name) {
+        return name == null ? null : LatinEncodingType.valueOf(name);
+    }
+
+    private static MessageLane toMessageLane(String name) throws IOException {
+        try {
+            return MessageLane.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("unknown lane of journal record: " + name);
+        }
+    }
+
+    public interface ReplayConsumer {
+
+        /**
+         * @param lane       lane the message was queued in
+         * @param appendTime epoch millis when the record was appended
+         */
+        void accept(DataMessage dataMessage, MessageLane lane, long sequence, long appendTime);
+    }
+
+    private static final class Segment {
+
+        private final long base;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private volatile boolean dirty;
+
+        private Segment(long base, File file, MappedByteBuffer buffer) {
+            this.base = base;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.smpp.client.simple.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.smpp.client.simple.enums.MessageState;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Mutable delivery receipt filled by {@link DeliveryReceiptParser}, reused for every receipt of a thread.
+ * Message id is kept as bytes, {@link #getId()} makes a String of it.
+ */
+@Getter
+public class ParsedReceipt {
+
+    //max length of message_id of SMPP 3.4 without the terminating zero
+    public static final int MAX_ID_LENGTH = 64;
+    public static final long NO_DATE = Long.MIN_VALUE;
+    public static final int NO_VALUE = -1;
+
+    @Getter(AccessLevel.NONE)
+    private final byte[] id = new byte[MAX_ID_LENGTH];
+    private int idLength;
+    //id is taken from receipted_message_id TLV, not from the text
+    private boolean receiptedMessageId;
+    private int submitted;
+    private int delivered;
+    //epoch millis
+    private long submitDate;
+    private long doneDate;
+    //null - not given
+    private MessageState state;
+    private int error;
+
+    public ParsedReceipt() {
+        reset();
+    }
+
+    /**
+     * Bytes of message id, valid up to {@link #getIdLength()}.
+     */
+    public byte[] getIdBytes() {
+        return id;
+    }
+
+    public String getId() {
+        return new String(id, 0, idLength, StandardCharsets.US_ASCII);
+    }
+
+    void reset() {
+        idLength = 0;
+        receiptedMessageId = false;
+        submitted = NO_VALUE;
+        delivered = NO_VALUE;
+        submitDate = NO_DATE;
+        doneDate = NO_DATE;
+        state = null;
+        error = NO_VALUE;
+    }
+
+    void setId(byte[] bytes, int offset, int length) {
+        idLength = Math.min(length, MAX_ID_LENGTH);
+        System.arraycopy(bytes, offset, id, 0, idLength);
+    }
+
+    void setReceiptedMessageId(boolean receiptedMessageId) {
+        this.receiptedMessageId = receiptedMessageId;
+    }
+
+    void setSubmitted(int submitted) {
+        this.submitted = submitted;
+    }
+
+    void setDelivered(int delivered) {
+        this.delivered = delivered;
+    }
+
+    void setSubmitDate(long submitDate) {
+        this.submitDate = submitDate;
+    }
+
+    void setDoneDate(long doneDate) {
+        this.doneDate = doneDate;
+    }
+
+    void setState(MessageState state) {
+        this.state = state;
+    }
+
+    void setError(int error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "messageId=" + getId() +
+                ", stat=" + state +
+                ", err=" + error +
+                ", sub=" + submitted +
+                ", dlvrd=" + delivered +
+                ", submit date=" + (submitDate == NO_DATE ? "" : Instant.ofEpochMilli(submitDate)) +
+                ", done date=" + (doneDate == NO_DATE ? "" : Instant.ofEpochMilli(doneDate));
+    }
+}
@@ -0,0 +1,186 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.CampaignRecipient;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Streams recipients of CSV file through a fixed direct buffer, file is never loaded whole.
+ * <p>
+ * The first line is header: column "phone" (or the first column if there is no such one) is the destination,
+ * other columns are values of template variables with the same names. Fields may be quoted by ",
+ * quote inside quoted field is doubled. One line is one recipient, lines end with \n or \r\n, file is UTF-8.
+ */
+public class RecipientFileReader implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final String PHONE_COLUMN = "phone";
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final List<String> columns;
+    private final int phoneColumn;
+    private final int[] variableColumns;
+    private byte[] line = new byte[256];
+    //offset of the first byte which is not read yet from buffer
+    private long offset;
+
+    /**
+     * @param variableNames names of template variables, values of recipient are given in their order
+     * @param startOffset   offset of the line to start from, header is read anyway
+     */
+    public RecipientFileReader(File file, List<String> variableNames, long startOffset) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), READ);
+        buffer.flip();
+
+        String header = readLine();
+        if (header == null) {
+            channel.close();
+            throw new IOException("recipient file is empty: " + file);
+        }
+        if (header.startsWith(BYTE_ORDER_MARK)) {
+            header = header.substring(BYTE_ORDER_MARK.length());
+        }
+        List<String> headerFields = parseFields(header);
+        for (int i = 0; i < headerFields.size(); i++) {
+            headerFields.set(i, headerFields.get(i).trim());
+        }
+        this.columns = Collections.unmodifiableList(headerFields);
+        this.phoneColumn = Math.max(0, indexOfColumn(PHONE_COLUMN));
+        this.variableColumns = new int[variableNames.size()];
+        for (int i = 0; i < variableColumns.length; i++) {
+            variableColumns[i] = indexOfColumn(variableNames.get(i));
+        }
+
+        if (startOffset > offset) {
+            channel.position(startOffset);
+            buffer.clear().flip();
+            offset = startOffset;
+        }
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public long getSize() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Next recipient, blank lines are skipped. Missing values are empty.
+     *
+     * @return null at the end of the file
+     */
+    public CampaignRecipient next() throws IOException {
+        while (true) {
+            long lineOffset = offset;
+            String text = readLine();
+            if (text == null) {
+                return null;
+            }
+            if (text.trim().isEmpty()) {
+                continue;
+            }
+            List<String> fields = parseFields(text);
+            String[] values = new String[variableColumns.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = getField(fields, variableColumns[i]);
+            }
+            return new CampaignRecipient(getField(fields, phoneColumn).trim(), values, lineOffset, offset);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int indexOfColumn(String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return null at the end of the file
+     */
+    private String readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) {
+                    if (length == 0) {
+                        return null;
+                    }
+                    break;
+                }
+                continue;
+            }
+            byte b = buffer.get();
+            offset++;
+            if (b == '\n') {
+                break;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = b;
+        }
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static String getField(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : "";
+    }
+
+    private static List<String> parseFields(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != QUOTE) {
+                    field.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == QUOTE) {
+                    field.append(QUOTE);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == QUOTE) {
+                quoted = true;
+            } else if (c == DELIMITER) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,183 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.utils.HashedTimingWheel;
+import org.apache.log4j.Logger;
+import org.jsmpp.extra.NegativeResponseException;
+import org.jsmpp.extra.ResponseTimeoutException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static net.smpp.client.simple.utils.Constants.MAX_BINDS_COUNT;
+import static org.jsmpp.SMPPConstant.*;
+
+/**
+ * Retries of submit_sm which failed for a transient reason: response timeout, broken connection
+ * or negative response with temporary error of SMSC. Other errors are permanent, message is not sent again.
+ * submit_sm throttled by SMSC is requeued without taking an attempt, until validity period of the message ends.
+ * <p>
+ * Delay of the retry grows exponentially with attempt, half of it is random, so retries of messages
+ * failed together don't come back together. Delays are kept by one timing wheel, due retries are sent
+ * by a few retry threads, because sending waits for rate limits and submit window.
+ */
+@Component
+public class RetryScheduler {
+
+    private static final long TICK_MILLIS = 10;
+    private static final int TICKS_PER_WHEEL = 512;
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final HashedTimingWheel timingWheel;
+    private final ExecutorService executor;
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder giveUps = new LongAdder();
+    private final LongAdder permanentFailures = new LongAdder();
+    private final LongAdder requeues = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    @Autowired
+    public RetryScheduler(@Value("${smpp.retry.attempts:5}") int maxAttempts,
+                          @Value("${smpp.retry.backoff.initial:500}") long initialBackoff,
+                          @Value("${smpp.retry.backoff.max:60000}") long maxBackoff) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.timingWheel = new HashedTimingWheel("retry-timer", TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(MAX_BINDS_COUNT, runnable -> {
+            Thread thread = new Thread(runnable, "retry-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Whether submit_sm may succeed if it is sent again later.
+     */
+    public static boolean isRetryable(Throwable e) {
+        if (e instanceof ResponseTimeoutException || e instanceof IOException) {
+            return true;
+        }
+        if (!(e instanceof NegativeResponseException)) {
+            return false;
+        }
+        switch (((NegativeResponseException) e).getCommandStatus()) {
+            case STAT_ESME_RTHROTTLED:
+            case STAT_ESME_RMSGQFUL:
+            case STAT_ESME_RSYSERR:
+            case STAT_ESME_RX_T_APPN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Schedules the next attempt of failed submit_sm if the error is transient and attempts are left.
+     *
+     * @param description what is sent, for the log
+     * @param attempt     number of the failed attempt, the first one is 1
+     * @param task        sends the next attempt, is run on a retry thread
+     * @return false if submit_sm failed for good
+     */
+    public boolean retry(String description, int attempt, Throwable e, Runnable task) {
+        if (!isRetryable(e)) {
+            permanentFailures.increment();
+            return false;
+        }
+        if (attempt >= maxAttempts) {
+            giveUps.increment();
+            logger.warn(String.format("%s failed after %s attempts: %s", description, attempt, e.getMessage()));
+            return false;
+        }
+
+        long backoff = getBackoff(attempt);
+        retries.increment();
+        logger.info(String.format("%s failed (%s), attempt %s in %s ms", description, e.getMessage(), attempt + 1, backoff));
+        timingWheel.schedule(() -> executor.execute(task), backoff, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Schedules submit_sm throttled by SMSC (ESME_RTHROTTLED, ESME_RMSGQFUL) again, it doesn't take an attempt.
+     * Task waits for the rate limit of the bind, lowered by {@link CongestionController}, so requeued messages
+     * go at that rate.
+     *
+     * @param deadline System.nanoTime() when validity period of the message ends, 0 - no end
+     * @param task     sends the message again, is run on a retry thread
+     * @return false if validity period of the message ends before it could be sent again
+     */
+    public boolean requeue(String description, long deadline, Throwable e, Runnable task) {
+        long backoff = getBackoff(1);
+        if (deadline != 0 && deadline - System.nanoTime() <= TimeUnit.MILLISECONDS.toNanos(backoff)) {
+            expired.increment();
+            logger.warn(String.format("%s throttled until its validity period passed: %s", description, e.getMessage()));
+            return false;
+        }
+        requeues.increment();
+        timingWheel.schedule(() -> executor.execute(task), backoff, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    /**
+     * Delay before the next attempt, between half and full exponential backoff.
+     */
+    long getBackoff(int attempt) {
+        long backoff = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 30));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * Retries scheduled since start.
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Messages with transient errors which didn't succeed within max attempts.
+     */
+    public long getGiveUps() {
+        return giveUps.sum();
+    }
+
+    /**
+     * Messages failed with errors which are not retried.
+     */
+    public long getPermanentFailures() {
+        return permanentFailures.sum();
+    }
+
+    /**
+     * Throttled submit_sm requeued since start.
+     */
+    public long getRequeues() {
+        return requeues.sum();
+    }
+
+    /**
+     * Throttled messages whose validity period passed before SMSC accepted them.
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * Retries waiting for their time.
+     */
+    public int getPending() {
+        return timingWheel.getPending();
+    }
+}
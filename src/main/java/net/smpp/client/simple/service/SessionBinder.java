@@ -1,7 +1,9 @@
 package net.smpp.client.simple.service;
 
 import lombok.Getter;
+import net.smpp.client.simple.enums.SessionSelection;
 import net.smpp.client.simple.utils.Constants;
+import net.smpp.client.simple.utils.RateLimiter;
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Logger;
 import org.jsmpp.bean.BindType;
@@ -10,8 +12,22 @@ import org.jsmpp.bean.TypeOfNumber;
 import org.jsmpp.session.BindParameter;
 import org.jsmpp.session.SMPPSession;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.smpp.client.simple.enums.SessionSelection.ROUND_ROBIN;
+
+/**
+ * Pool of binds with the same parameters. Bind is chosen per message, so all segments
+ * of a concatenated message go over the same bind. Segments failed by timeout or broken connection may be
+ * retried over a bind chosen again, see {@link BoundSession}.
+ * submit_sm rate may be limited per bind and per account (all binds together), 0 means no limit.
+ */
 @Getter
 @Component
 public class SessionBinder {
@@ -19,22 +35,75 @@ public class SessionBinder {
     private Logger logger = Logger.getLogger(getClass());
 
     private final MessageReceiver messageReceiver;
-    private SMPPSession session;
+    private final RetryScheduler retryScheduler;
+    private final int submitWindowSize;
+    private final SessionSelection sessionSelection;
+    private final double sessionRate;
+    private final double accountRate;
+    private final int rateBurst;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private volatile List<BoundSession> sessions = Collections.emptyList();
 
     @Autowired
-    public SessionBinder(MessageReceiver messageReceiver) {
+    public SessionBinder(MessageReceiver messageReceiver,
+                         RetryScheduler retryScheduler,
+                         @Value("${smpp.submit.window.size:10}") int submitWindowSize,
+                         @Value("${smpp.session.selection:LEAST_OUTSTANDING}") SessionSelection sessionSelection,
+                         @Value("${smpp.rate.session:0}") double sessionRate,
+                         @Value("${smpp.rate.account:0}") double accountRate,
+                         @Value("${smpp.rate.burst:1}") int rateBurst) {
         this.messageReceiver = messageReceiver;
+        this.retryScheduler = retryScheduler;
+        this.submitWindowSize = submitWindowSize;
+        this.sessionSelection = sessionSelection;
+        this.sessionRate = sessionRate;
+        this.accountRate = accountRate;
+        this.rateBurst = rateBurst;
     }
 
-    public void bindSession(BindType bindType,
-                            String login,
-                            String pass,
-                            String ip,
-                            Integer port
+    /**
+     * Binds count sessions, binds which failed are logged and skipped.
+     *
+     * @throws Exception of the last failed bind if none succeeded
+     */
+    public void bindSessions(BindType bindType,
+                             String login,
+                             String pass,
+                             String ip,
+                             Integer port,
+                             int count
     ) throws Exception {
 
         BasicConfigurator.configure();
-        session = new SMPPSession();
+        unbindSessions();
+
+        RateLimiter accountRateLimiter = new RateLimiter(accountRate, rateBurst);
+        List<BoundSession> boundSessions = new ArrayList<>(count);
+        Exception bindException = null;
+        for (int i = 1; i <= count; i++) {
+            try {
+                boundSessions.add(bindSession(i, bindType, login, pass, ip, port, accountRateLimiter));
+            } catch (Exception e) {
+                logger.error(String.format("bind %s failed: %s", i, e.getMessage()), e);
+                bindException = e;
+            }
+        }
+        if (boundSessions.isEmpty()) {
+            throw bindException;
+        }
+        sessions = Collections.unmodifiableList(boundSessions);
+        logger.info(String.format("bound %s of %s sessions", boundSessions.size(), count));
+    }
+
+    private BoundSession bindSession(int number,
+                                     BindType bindType,
+                                     String login,
+                                     String pass,
+                                     String ip,
+                                     Integer port,
+                                     RateLimiter accountRateLimiter) throws Exception {
+
+        SMPPSession session = new SMPPSession();
 
         session.connectAndBind(ip,
                 port,
@@ -49,5 +118,62 @@ public class SessionBinder {
 
         // Set listener to receive deliver_sm
         session.setMessageReceiverListener(messageReceiver);
+        session.addSessionStateListener((newState, oldState, source) ->
+                logger.info(String.format("bind %s state changed from %s to %s", number, oldState, newState)));
+
+        return new BoundSession(number,
+                session,
+                new SubmitWindow(session, submitWindowSize),
+                new RateLimiter(sessionRate, rateBurst),
+                accountRateLimiter,
+                sessionRate,
+                retryScheduler,
+                this::nextSession);
+    }
+
+    public boolean isBound() {
+        return !sessions.isEmpty();
+    }
+
+    /**
+     * Healthy bind for the next message, all segments of the message must be sent over it.
+     *
+     * @return null if no bind can send now
+     */
+    public BoundSession nextSession() {
+        List<BoundSession> boundSessions = sessions;
+        int count = boundSessions.size();
+        if (count == 0) {
+            return null;
+        }
+
+        int start = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % count;
+        BoundSession selected = null;
+        for (int i = 0; i < count; i++) {
+            BoundSession boundSession = boundSessions.get((start + i) % count);
+            if (!boundSession.isHealthy()) {
+                continue;
+            }
+            if (sessionSelection == ROUND_ROBIN) {
+                return boundSession;
+            }
+            if (selected == null
+                    || boundSession.getSubmitWindow().getOutstanding() < selected.getSubmitWindow().getOutstanding()) {
+                selected = boundSession;
+            }
+        }
+        return selected;
+    }
+
+    public void unbindSessions() {
+        List<BoundSession> boundSessions = sessions;
+        sessions = Collections.emptyList();
+        for (BoundSession boundSession : boundSessions) {
+            try {
+                boundSession.close();
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
     }
 }
@@ -0,0 +1,185 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.SubmitResult;
+import org.apache.log4j.Logger;
+import org.jsmpp.bean.Address;
+import org.jsmpp.session.SMPPSession;
+import org.jsmpp.session.SubmitMultiResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Window of outstanding submit_sm and submit_multi of one session.
+ * <p>
+ * jsmpp sends pdu and waits for the response with the same sequence number in the calling thread,
+ * so every slot of the window is a worker thread. Caller blocks while the window is full.
+ * Permit is returned before the future completes.
+ * <p>
+ * Limit of the window may be lowered and raised back up to its size while sending,
+ * already outstanding submit_sm are not affected.
+ */
+public class SubmitWindow implements AutoCloseable {
+
+    private static final AtomicInteger WINDOW_NUMBER = new AtomicInteger();
+
+    private Logger logger = Logger.getLogger(getClass());
+
+    private final SMPPSession session;
+    private final int size;
+    private final WindowSemaphore permits;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private int limit;
+    private final ExecutorService executor;
+
+    public SubmitWindow(SMPPSession session, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("submit window size must be positive: " + size);
+        }
+        this.session = session;
+        this.size = size;
+        this.permits = new WindowSemaphore(size);
+        this.limit = size;
+
+        String threadName = "submit-window-" + WINDOW_NUMBER.incrementAndGet() + "-";
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, threadName + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets count of submit_sm which may be outstanding, from 1 to size of the window.
+     */
+    public synchronized void setLimit(int limit) {
+        int newLimit = Math.max(1, Math.min(size, limit));
+        if (newLimit > this.limit) {
+            permits.release(newLimit - this.limit);
+        } else if (newLimit < this.limit) {
+            permits.reduce(this.limit - newLimit);
+        }
+        this.limit = newLimit;
+    }
+
+    /**
+     * Count of submit_sm which wait for response or for a free worker.
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Sends segment when window has room, blocks until then.
+     */
+    public CompletableFuture<SubmitResult> submit(CompiledMessage compiledMessage, int index, int ref) throws InterruptedException {
+        permits.acquire();
+        return submitWithPermit(compiledMessage, index, ref);
+    }
+
+    /**
+     * Same as {@link #submit(CompiledMessage, int, int)}, but waits for room in window no longer than timeout.
+     *
+     * @return null if window is still full
+     */
+    public CompletableFuture<SubmitResult> trySubmit(CompiledMessage compiledMessage, int index, int ref,
+                                                     long timeout, TimeUnit unit) throws InterruptedException {
+        if (!permits.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return submitWithPermit(compiledMessage, index, ref);
+    }
+
+    /**
+     * Sends segment to all destinations by one submit_multi when window has room, blocks until then.
+     */
+    public CompletableFuture<SubmitMultiResult> submitMulti(CompiledMessage compiledMessage,
+                                                            Address[] destinations,
+                                                            int index,
+                                                            int ref) throws InterruptedException {
+        permits.acquire();
+        return executeWithPermit(() -> MessageSender.submitMultiSegment(session, compiledMessage, destinations, index, ref));
+    }
+
+    private CompletableFuture<SubmitResult> submitWithPermit(CompiledMessage compiledMessage, int index, int ref) {
+        return executeWithPermit(() -> {
+            long startTime = System.nanoTime();
+            String messageId = MessageSender.submitSegment(session, compiledMessage, index, ref);
+            return new SubmitResult(messageId,
+                    compiledMessage.getDestinationAddr(),
+                    index + 1,
+                    compiledMessage.getTotalSegments(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        });
+    }
+
+    private <T> CompletableFuture<T> executeWithPermit(Request<T> request) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        outstanding.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                T result;
+                try {
+                    result = request.send();
+                } catch (Exception e) {
+                    release();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                release();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void release() {
+        outstanding.decrementAndGet();
+        permits.release();
+    }
+
+    /**
+     * New submits are rejected, already sent ones still get their responses.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        logger.info(String.format("submit window closed, outstanding=%s", getOutstanding()));
+    }
+
+    /**
+     * Pdu sent in a worker thread, returns its response.
+     */
+    private interface Request<T> {
+
+        T send() throws Exception;
+    }
+
+    private static class WindowSemaphore extends Semaphore {
+
+        WindowSemaphore(int permits) {
+            super(permits);
+        }
+
+        void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+}
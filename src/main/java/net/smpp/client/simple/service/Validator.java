@@ -16,6 +16,15 @@ public class Validator {
         return validateLogin(login) && validatePass(pass);
     }
 
+    public boolean validateBindsCount(int bindsCount) {
+        if (bindsCount >= 1 && bindsCount <= MAX_BINDS_COUNT) {
+            return true;
+        } else {
+            logger.error("count of binds must be from 1 to " + MAX_BINDS_COUNT);
+            return false;
+        }
+    }
+
     private boolean validateLogin(String login) {
         if (!isBlank(login)) {
             return login.length() <= MAX_LOGIN_LENGTH;
@@ -3,11 +3,26 @@ package net.smpp.client.simple.utils;
 public interface Constants {
 
 	int ENQUIRE_LINK_TIMER = 40000; //40 seconds
+	int MAX_BINDS_COUNT = 8; //parallel binds of the session pool
+	int BIND_FAILURES_TO_PAUSE = 3; //submit_sm in a row without response
+	int BIND_PAUSE = 5000; //5 seconds
 	int MAX_SMS_MESSAGES_PARTS = 10; //max parts for message (for this smpp-client)
+	int MAX_SUBMIT_MULTI_DESTINATIONS = 254; //number_of_dests of submit_multi
 	short GSM_LENGTH = 160;
 	short UCS_LENGTH = 70;
 	short GSM_CONCAT_LENGTH = 153;
 	short UCS_CONCAT_LENGTH = 67;
+	short GSM_CONCAT_16BIT_LENGTH = 152; //7 octets of 16bit udh take 8 septets
+	short UCS_CONCAT_16BIT_LENGTH = 66;
+
+	int UDH_8BIT_LENGTH = 6;
+	int UDH_16BIT_LENGTH = 7;
+	int UDH_NATIONAL_LANGUAGE_IE_LENGTH = 3;
+	byte UDH_IE_CONCAT_8BIT = 0x00;
+	byte UDH_IE_CONCAT_16BIT = 0x08;
+	byte UDH_IE_SINGLE_SHIFT = 0x24;
+	byte UDH_IE_LOCKING_SHIFT = 0x25;
+	byte GSM_ESCAPE = 0x1B; //escape to extension table
 
 	int MAX_LOGIN_LENGTH = 15;
 	int MAX_PASSWORD_LENGTH = 8;
@@ -22,6 +37,4 @@ public interface Constants {
 
 	String UCS2_ENCODING = "UTF-16BE";
 
-	int MAX_MESSAGES_PER_BATCH = 200;
-
 }
@@ -0,0 +1,189 @@
+package net.smpp.client.simple.utils;
+
+import net.smpp.client.simple.domain.EncodingStatus;
+import net.smpp.client.simple.domain.UdhType;
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.utils.encoding.CharsetEncoding;
+import net.smpp.client.simple.utils.encoding.Gsm0338Charset;
+import net.smpp.client.simple.utils.encoding.GsmNationalLanguage;
+
+import java.util.List;
+
+import static net.smpp.client.simple.enums.LatinEncodingType.GSM_0338;
+import static net.smpp.client.simple.utils.Constants.*;
+
+/**
+ * Detects data_coding, encoded length and count of segments in one pass over the text.
+ * Plain ascii is checked first, other chars are looked up in bitsets built from the charset tables.
+ * <p>
+ * When text doesn't fit GSM 03.38 default alphabet, national language shift tables are tried
+ * and the variant with the fewest segments is chosen, UCS2 included.
+ */
+public final class EncodingDetector {
+
+    private static final EncodingDetector[] NO_DETECTORS = new EncodingDetector[0];
+    private static final EncodingDetector GSM_DETECTOR = new EncodingDetector(TextUtils.getCharsetEncoding(GSM_0338), createNationalDetectors());
+    private static final EncodingDetector LATIN_DETECTOR = new EncodingDetector(TextUtils.getCharsetEncoding(LatinEncodingType.LATIN_ISO8859_1), NO_DETECTORS);
+
+    //ascii chars which are encoded to one byte
+    private final long asciiLow;
+    private final long asciiHigh;
+    //chars encoded to one byte and to escape sequence
+    private final long[] singleChars = new long[(Character.MAX_VALUE + 1) >> 6];
+    private final long[] escapedChars = new long[(Character.MAX_VALUE + 1) >> 6];
+
+    private final GsmNationalLanguage lockingShift;
+    private final GsmNationalLanguage singleShift;
+    private final int nationalLanguageIeLength;
+    private final EncodingDetector[] nationalDetectors;
+
+    private EncodingDetector(CharsetEncoding charsetEncoding, EncodingDetector[] nationalDetectors) {
+        this(charsetEncoding, null, null, nationalDetectors);
+    }
+
+    private EncodingDetector(CharsetEncoding charsetEncoding,
+                             GsmNationalLanguage lockingShift,
+                             GsmNationalLanguage singleShift,
+                             EncodingDetector[] nationalDetectors) {
+        this.lockingShift = lockingShift;
+        this.singleShift = singleShift;
+        this.nationalLanguageIeLength = TextUtils.getNationalLanguageIeLength(lockingShift, singleShift);
+        this.nationalDetectors = nationalDetectors;
+
+        for (int symbol = 0; symbol <= Character.MAX_VALUE; symbol++) {
+            int length = charsetEncoding.getEncodedLength((char) symbol);
+            if (length == 1) {
+                singleChars[symbol >> 6] |= 1L << symbol;
+            } else if (length == 2) {
+                escapedChars[symbol >> 6] |= 1L << symbol;
+            }
+        }
+        asciiLow = singleChars[0];
+        asciiHigh = singleChars[1];
+    }
+
+    private static EncodingDetector[] createNationalDetectors() {
+        List<Gsm0338Charset> charsets = Gsm0338Charset.getNationalCharsets();
+        EncodingDetector[] detectors = new EncodingDetector[charsets.size()];
+        for (int i = 0; i < detectors.length; i++) {
+            Gsm0338Charset charset = charsets.get(i);
+            detectors[i] = new EncodingDetector(charset, charset.getLockingShift(), charset.getSingleShift(), NO_DETECTORS);
+        }
+        return detectors;
+    }
+
+    public static EncodingDetector getInstance(LatinEncodingType latinEncodingType) {
+        return latinEncodingType == GSM_0338 ? GSM_DETECTOR : LATIN_DETECTOR;
+    }
+
+    /**
+     * Count of segments is calculated the same way as {@link TextUtils#getSegmentsOfMessage},
+     * but without {@link Constants#MAX_SMS_MESSAGES_PARTS} limit.
+     * National language tables need udh, so they are not tried for {@link UdhType#no_udh}.
+     */
+    public EncodingStatus detect(CharSequence text, UdhType udhType) {
+        boolean isNationalLanguageAllowed = nationalDetectors.length > 0 && udhType != UdhType.no_udh;
+        EncodingStatus encodingStatus = detect(text, udhType, !isNationalLanguageAllowed);
+        if (encodingStatus != null) {
+            return encodingStatus;
+        }
+
+        //same count of segments: prefer fewer information elements, then 7 bit over UCS2
+        EncodingStatus bestStatus = null;
+        for (EncodingDetector nationalDetector : nationalDetectors) {
+            EncodingStatus nationalStatus = nationalDetector.detect(text, udhType, false);
+            if (nationalStatus != null && (bestStatus == null || nationalStatus.getTotalSegments() < bestStatus.getTotalSegments())) {
+                bestStatus = nationalStatus;
+            }
+        }
+        EncodingStatus ucs2Status = detectUcs2(text, 0, udhType);
+        if (bestStatus == null || ucs2Status.getTotalSegments() < bestStatus.getTotalSegments()) {
+            return ucs2Status;
+        }
+        return bestStatus;
+    }
+
+    /**
+     * @return null if text can't be encoded by this charset and UCS2 is not allowed
+     */
+    private EncodingStatus detect(CharSequence text, UdhType udhType, boolean isUcs2Allowed) {
+        int textLength = text.length();
+        int partsLength = TextUtils.getGsmConcatLength(udhType, nationalLanguageIeLength);
+
+        int encodedLength = 0;
+        int totalSegments = 1;
+        int currentLength = 0;
+        int i = 0;
+        while (i < textLength) {
+            //fast path for block of plain ascii
+            int asciiStart = i;
+            char symbol;
+            while (i < textLength && (symbol = text.charAt(i)) < 0x80
+                    && ((symbol < 0x40 ? asciiLow : asciiHigh) & 1L << symbol) != 0) {
+                i++;
+            }
+            if (i > asciiStart) {
+                int asciiLength = i - asciiStart;
+                encodedLength += asciiLength;
+                currentLength += asciiLength;
+                if (currentLength > partsLength) {
+                    totalSegments += (currentLength - 1) / partsLength;
+                    currentLength = (currentLength - 1) % partsLength + 1;
+                }
+                continue;
+            }
+
+            symbol = text.charAt(i);
+            int symbolLength;
+            if ((singleChars[symbol >> 6] & 1L << symbol) != 0) {
+                symbolLength = 1;
+            } else if ((escapedChars[symbol >> 6] & 1L << symbol) != 0) {
+                symbolLength = 2;
+            } else if (isUcs2Allowed) {
+                return detectUcs2(text, i, udhType);
+            } else {
+                return null;
+            }
+            if (currentLength + symbolLength > partsLength) {
+                totalSegments++;
+                currentLength = 0;
+            }
+            currentLength += symbolLength;
+            encodedLength += symbolLength;
+            i++;
+        }
+
+        if (encodedLength <= TextUtils.getGsmSingleLength(nationalLanguageIeLength)) {
+            totalSegments = encodedLength == 0 ? 0 : 1;
+        }
+        return new EncodingStatus(GSM_7_BIT, encodedLength, totalSegments, lockingShift, singleShift);
+    }
+
+    /**
+     * Continues detection from the first char which can't be encoded by latin charset,
+     * all chars before it take one UCS2 unit.
+     */
+    private static EncodingStatus detectUcs2(CharSequence text, int from, UdhType udhType) {
+        int textLength = text.length();
+        int partsLength = udhType == UdhType.udh_16bit ? UCS_CONCAT_16BIT_LENGTH : UCS_CONCAT_LENGTH;
+
+        int totalSegments = from == 0 ? 1 : (from - 1) / partsLength + 1;
+        int currentLength = from - (totalSegments - 1) * partsLength;
+        int i = from;
+        while (i < textLength) {
+            //surrogate pair is never split between segments
+            int symbolLength = i + 1 < textLength && Character.isSurrogatePair(text.charAt(i), text.charAt(i + 1)) ? 2 : 1;
+            if (currentLength + symbolLength > partsLength) {
+                totalSegments++;
+                currentLength = 0;
+            }
+            currentLength += symbolLength;
+            i += symbolLength;
+        }
+
+        if (textLength <= UCS_LENGTH) {
+            totalSegments = 1;
+        }
+        return new EncodingStatus(ALPHA_UCS2, textLength * 2, totalSegments, null, null);
+    }
+}
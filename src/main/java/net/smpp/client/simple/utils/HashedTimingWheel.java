@@ -0,0 +1,146 @@
+package net.smpp.client.simple.utils;
+
+import org.apache.log4j.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer for many short tasks with coarse delays: tasks are hashed by their deadline tick into buckets of a wheel,
+ * one thread turns the wheel and runs expired tasks of the current bucket.
+ * <p>
+ * Scheduling is O(1) and takes one small node per task, tasks are run late by up to one tick.
+ * Tasks run on the wheel thread, so they must not block, long work should be handed to an executor.
+ */
+public class HashedTimingWheel implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(HashedTimingWheel.class);
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean closed;
+    private long tick;
+
+    /**
+     * @param ticksPerWheel rounded up to power of 2, delays longer than a turn of the wheel take several rounds
+     */
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException(String.format("tick duration and ticks per wheel must be positive: %s, %s",
+                    tickDuration, ticksPerWheel));
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int wheelLength = 1;
+        while (wheelLength < ticksPerWheel) {
+            wheelLength <<= 1;
+        }
+        this.buckets = new Timeout[wheelLength];
+        this.mask = buckets.length - 1;
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Runs task on the wheel thread after the delay, tasks scheduled after {@link #close()} are dropped.
+     */
+    public void schedule(Runnable task, long delay, TimeUnit unit) {
+        if (closed) {
+            return;
+        }
+        pending.incrementAndGet();
+        newTimeouts.add(new Timeout(task, System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay))));
+    }
+
+    /**
+     * Tasks scheduled and not run yet.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the wheel, pending tasks are not run.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!closed) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            transferNewTimeouts();
+            expire((int) (tick & mask));
+            tick++;
+        }
+        newTimeouts.clear();
+        pending.set(0);
+    }
+
+    private void transferNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            long ticks = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (ticks - tick) / buckets.length;
+            //deadline which is already passed goes to the current bucket
+            int index = (int) (Math.max(ticks, tick) & mask);
+            timeout.next = buckets[index];
+            buckets[index] = timeout;
+        }
+    }
+
+    private void expire(int index) {
+        Timeout previous = null;
+        Timeout timeout = buckets[index];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                if (previous == null) {
+                    buckets[index] = next;
+                } else {
+                    previous.next = next;
+                }
+                pending.decrementAndGet();
+                try {
+                    timeout.task.run();
+                } catch (Exception e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            } else {
+                timeout.remainingRounds--;
+                previous = timeout;
+            }
+            timeout = next;
+        }
+    }
+
+    private static final class Timeout {
+
+        private final Runnable task;
+        private final long deadline; //nanos since start of the wheel
+        private long remainingRounds;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package net.smpp.client.simple.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spaces permits evenly by generic cell rate algorithm: every permit moves theoretical arrival time
+ * by emission interval, permit is given when theoretical arrival time is not further than burst intervals ahead.
+ * <p>
+ * Rate may be fractional, rate 0 or less means no limit. Waiting callers reserve their slots in turn,
+ * so concurrent callers are spaced too.
+ */
+public class RateLimiter {
+
+    private static final long NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+    private final int burst;
+    private volatile double rate;
+    private volatile long emissionInterval;
+    private volatile long tolerance;
+
+    public RateLimiter(double rate, int burst) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be positive: " + burst);
+        }
+        this.burst = burst;
+        setRate(rate);
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public boolean isUnlimited() {
+        return emissionInterval == 0;
+    }
+
+    /**
+     * Permits per second, applied to the permits which are not reserved yet.
+     */
+    public void setRate(double rate) {
+        long interval = rate > 0 ? Math.max(1, Math.round(NANOS_IN_SECOND / rate)) : 0;
+        this.rate = rate;
+        this.emissionInterval = interval;
+        this.tolerance = interval * (burst - 1);
+    }
+
+    /**
+     * Waits for the next permit.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        long deadline = System.nanoTime() + waitNanos;
+        while (waitNanos > 0) {
+            LockSupport.parkNanos(this, waitNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitNanos = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Takes permit only if it is available right now.
+     */
+    public boolean tryAcquire() {
+        long interval = emissionInterval;
+        if (interval == 0) {
+            return true;
+        }
+        while (true) {
+            long now = System.nanoTime();
+            long arrivalTime = theoreticalArrivalTime.get();
+            long start = Math.max(arrivalTime, now);
+            if (start - tolerance > now) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, start + interval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Reserves the next permit.
+     *
+     * @return nanos to wait until the permit may be used
+     */
+    private long reserve() {
+        long interval = emissionInterval;
+        if (interval == 0) {
+            return 0;
+        }
+        while (true) {
+            long now = System.nanoTime();
+            long arrivalTime = theoreticalArrivalTime.get();
+            long start = Math.max(arrivalTime, now);
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, start + interval)) {
+                return start - tolerance - now;
+            }
+        }
+    }
+}
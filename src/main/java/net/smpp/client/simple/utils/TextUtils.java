@@ -1,15 +1,20 @@
 package net.smpp.client.simple.utils;
 
+import net.smpp.client.simple.domain.EncodingStatus;
+import net.smpp.client.simple.domain.TransliterationResult;
 import net.smpp.client.simple.domain.UdhType;
 import net.smpp.client.simple.enums.LatinEncodingType;
 import net.smpp.client.simple.utils.encoding.CharsetEncoding;
 import net.smpp.client.simple.utils.encoding.Gsm0338Charset;
+import net.smpp.client.simple.utils.encoding.GsmNationalLanguage;
 import net.smpp.client.simple.utils.encoding.LatinIso8859Charset;
 import org.jsmpp.SMPPConstant;
 import org.jsmpp.util.RelativeTimeFormatter;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static net.smpp.client.simple.enums.LatinEncodingType.GSM_0338;
@@ -19,50 +24,79 @@ public final class TextUtils {
 
     public static final long serialVersionUID = 1_000_032L;
 
+    private static final Gsm0338Charset GSM_CHARSET = new Gsm0338Charset();
+    private static final LatinIso8859Charset LATIN_CHARSET = new LatinIso8859Charset();
+    private static final Charset UCS2_CHARSET = Charset.forName(UCS2_ENCODING);
+
     private TextUtils() {
     }
 
+    public static CharsetEncoding getCharsetEncoding(LatinEncodingType latinEncodingType) {
+        return latinEncodingType == GSM_0338 ? GSM_CHARSET : LATIN_CHARSET;
+    }
+
+    /**
+     * Same instances as {@link #getCharsetEncoding(LatinEncodingType)} for use with Reader/Writer/Channels.
+     */
+    public static Charset getCharset(LatinEncodingType latinEncodingType) {
+        return latinEncodingType == GSM_0338 ? GSM_CHARSET : LATIN_CHARSET;
+    }
+
     public static byte determineEncodingStatus(String text, LatinEncodingType latinLatinEncodingType) {
-        CharsetEncoding charsetEncoding;
+        return detectEncoding(text, latinLatinEncodingType, UdhType.no_udh).getDataCoding();
+    }
 
-        if (latinLatinEncodingType == GSM_0338) {
-            charsetEncoding = new Gsm0338Charset();
-        } else {
-            charsetEncoding = new LatinIso8859Charset();
-        }
+    /**
+     * Data coding, encoded length and count of segments in one pass over the text.
+     */
+    public static EncodingStatus detectEncoding(String text, LatinEncodingType latinEncodingType, UdhType udhType) {
+        return EncodingDetector.getInstance(latinEncodingType).detect(text, udhType);
+    }
 
-        if (charsetEncoding.isLatinEncoding(text)) {
-            return GSM_7_BIT;
-        } else {
-            return ALPHA_UCS2;
+    /**
+     * Replaces chars which latin charset can't encode by default rules of {@link Transliterator},
+     * then detects encoding of the result. Transliterated text is taken only if it needs fewer segments,
+     * or as many segments but not UCS2 any more, otherwise the original text is kept.
+     * Count of segments before transliteration is kept for reporting.
+     */
+    public static TransliterationResult transliterate(String text, LatinEncodingType latinEncodingType, UdhType udhType) {
+        return transliterate(text, Transliterator.getInstance(latinEncodingType), latinEncodingType, udhType);
+    }
+
+    public static TransliterationResult transliterate(String text,
+                                                      Transliterator transliterator,
+                                                      LatinEncodingType latinEncodingType,
+                                                      UdhType udhType) {
+        EncodingStatus statusBefore = detectEncoding(text, latinEncodingType, udhType);
+        String transliteratedText = transliterator.transliterate(text);
+        if (transliteratedText == text) {
+            return new TransliterationResult(text, statusBefore, statusBefore.getTotalSegments());
+        }
+        EncodingStatus statusAfter = detectEncoding(transliteratedText, latinEncodingType, udhType);
+        boolean isLeftUcs2 = statusBefore.getDataCoding() == ALPHA_UCS2 && statusAfter.getDataCoding() != ALPHA_UCS2;
+        if (statusAfter.getTotalSegments() < statusBefore.getTotalSegments()
+                || statusAfter.getTotalSegments() == statusBefore.getTotalSegments() && isLeftUcs2) {
+            return new TransliterationResult(transliteratedText, statusAfter, statusBefore.getTotalSegments());
         }
+        //text is changed for nothing, e.g. it stays UCS2 or takes more segments
+        return new TransliterationResult(text, statusBefore, statusBefore.getTotalSegments());
     }
 
     public static byte[] convertStringToByte(String text, byte dataCoding, LatinEncodingType latinEncodingTypeType) throws UnsupportedEncodingException {
         if (dataCoding == GSM_7_BIT || dataCoding == LATIN_8859_1) {
-            CharsetEncoding charsetEncoding;
-            if (latinEncodingTypeType == GSM_0338) {
-                charsetEncoding = new Gsm0338Charset();
-            } else {
-                charsetEncoding = new LatinIso8859Charset();
-            }
+            CharsetEncoding charsetEncoding = getCharsetEncoding(latinEncodingTypeType);
             return charsetEncoding.convertStringToBytes(text);
         } else {
             //cyrillic ALPHA_UCS2
-            return text.getBytes(UCS2_ENCODING);
+            return text.getBytes(UCS2_CHARSET);
         }
     }
 
     public static String convertByteToString(byte[] array, byte dataCoding, LatinEncodingType latinEncodingTypeType) throws UnsupportedEncodingException {
         if (dataCoding == ALPHA_UCS2) {
-            return new String(array, UCS2_ENCODING);
+            return new String(array, UCS2_CHARSET);
         } else {
-            CharsetEncoding charsetEncoding;
-            if (latinEncodingTypeType == GSM_0338) {
-                charsetEncoding = new Gsm0338Charset();
-            } else {
-                charsetEncoding = new LatinIso8859Charset();
-            }
+            CharsetEncoding charsetEncoding = getCharsetEncoding(latinEncodingTypeType);
 
             return charsetEncoding.convertBytesToString(array);
         }
@@ -74,12 +108,7 @@ public final class TextUtils {
         int textLength;
         List<String> list = new ArrayList<>();
 
-        CharsetEncoding charsetEncoding;
-        if (latinEncodingType == LatinEncodingType.GSM_0338) {
-            charsetEncoding = new Gsm0338Charset();
-        } else {
-            charsetEncoding = new LatinIso8859Charset();
-        }
+        CharsetEncoding charsetEncoding = getCharsetEncoding(latinEncodingType);
 
         if (charsetEncoding.isLatinEncoding(value)) {
             byte[] byteMessage = charsetEncoding.convertStringToBytes(value);
@@ -134,6 +163,296 @@ public final class TextUtils {
         return list.toArray(new String[list.size()]);
     }
 
+    /**
+     * Encodes text once and splits it into ready to send segments.
+     * For udh_8bit/udh_16bit concatenated messages udh is written in front of every segment,
+     * single segment message has no concatenation udh, see {@link #hasUdh(UdhType, int, EncodingStatus)}.
+     * Escape sequences (GSM) and surrogate pairs (UCS2) are never split between segments.
+     */
+    public static byte[][] getSegmentsOfMessage(String text,
+                                                byte encoding,
+                                                UdhType udhType,
+                                                int ref,
+                                                LatinEncodingType latinEncodingType) throws UnsupportedEncodingException {
+
+        if (encoding == ALPHA_UCS2) {
+            return getUcs2SegmentsOfMessage(text.getBytes(UCS2_CHARSET), udhType, ref);
+        }
+        CharsetEncoding charsetEncoding = getCharsetEncoding(latinEncodingType);
+        int length = charsetEncoding.getEncodedLength(text, 0, text.length());
+        return getSegmentsOfMessage(text, length, udhType, ref, charsetEncoding, null, null);
+    }
+
+    /**
+     * Same as {@link #getSegmentsOfMessage(String, byte, UdhType, int, LatinEncodingType)},
+     * but takes encoding and encoded length from already made detection.
+     * If national language tables were chosen, their information elements are written to udh of every segment.
+     */
+    public static byte[][] getSegmentsOfMessage(String text,
+                                                EncodingStatus encodingStatus,
+                                                UdhType udhType,
+                                                int ref,
+                                                LatinEncodingType latinEncodingType) throws UnsupportedEncodingException {
+
+        if (encodingStatus.getDataCoding() == ALPHA_UCS2) {
+            return getUcs2SegmentsOfMessage(text.getBytes(UCS2_CHARSET), udhType, ref);
+        }
+        GsmNationalLanguage lockingShift = encodingStatus.getLockingShift();
+        GsmNationalLanguage singleShift = encodingStatus.getSingleShift();
+        CharsetEncoding charsetEncoding = encodingStatus.hasNationalLanguage()
+                ? Gsm0338Charset.forNationalLanguage(lockingShift, singleShift)
+                : getCharsetEncoding(latinEncodingType);
+        return getSegmentsOfMessage(text, encodingStatus.getEncodedLength(), udhType, ref, charsetEncoding, lockingShift, singleShift);
+    }
+
+    private static byte[][] getSegmentsOfMessage(String text,
+                                                 int length,
+                                                 UdhType udhType,
+                                                 int ref,
+                                                 CharsetEncoding charsetEncoding,
+                                                 GsmNationalLanguage lockingShift,
+                                                 GsmNationalLanguage singleShift) {
+
+        int textLength = text.length();
+        int nationalLanguageIeLength = getNationalLanguageIeLength(lockingShift, singleShift);
+
+        boolean isConcatenated = length > getGsmSingleLength(nationalLanguageIeLength);
+        int partsLength = isConcatenated ? getGsmConcatLength(udhType, nationalLanguageIeLength) : length;
+        int udhLength = getGsmUdhLength(isConcatenated, udhType, nationalLanguageIeLength);
+
+        byte[][] segments = new byte[MAX_SMS_MESSAGES_PARTS + 1][];
+        int totalParts = 0;
+        int currentPosition = 0;
+        int encodedLength = 0;
+        while (totalParts < segments.length && currentPosition < textLength) {
+            //encoder stops before escape sequence which doesn't fit, then segment is one byte shorter
+            byte[] segment = new byte[udhLength + Math.min(partsLength, length - encodedLength)];
+            long result = charsetEncoding.encode(text, currentPosition, textLength, segment, udhLength, segment.length - udhLength);
+            int produced = CharsetEncoding.produced(result);
+            if (udhLength + produced < segment.length) {
+                segment = Arrays.copyOf(segment, udhLength + produced);
+            }
+            segments[totalParts++] = segment;
+            currentPosition += CharsetEncoding.consumed(result);
+            encodedLength += produced;
+        }
+
+        if (totalParts < segments.length) {
+            segments = Arrays.copyOf(segments, totalParts);
+        }
+        writeGsmUdh(segments, isConcatenated, udhLength, udhType, ref, lockingShift, singleShift);
+        return segments;
+    }
+
+    /**
+     * Splits already encoded message into segments by the same rules as
+     * {@link #getSegmentsOfMessage(String, EncodingStatus, UdhType, int, LatinEncodingType)}.
+     * Encoded length of the status must be equal to the length of the message, count of segments is not used.
+     * For GSM 03.38 segment never ends with escape byte.
+     */
+    public static byte[][] getSegmentsOfEncodedMessage(byte[] message,
+                                                       EncodingStatus encodingStatus,
+                                                       UdhType udhType,
+                                                       int ref,
+                                                       LatinEncodingType latinEncodingType) {
+
+        if (encodingStatus.getDataCoding() == ALPHA_UCS2) {
+            return getUcs2SegmentsOfMessage(message, udhType, ref);
+        }
+        GsmNationalLanguage lockingShift = encodingStatus.getLockingShift();
+        GsmNationalLanguage singleShift = encodingStatus.getSingleShift();
+        boolean isEscapeAware = latinEncodingType == GSM_0338 || encodingStatus.hasNationalLanguage();
+
+        int length = message.length;
+        int nationalLanguageIeLength = getNationalLanguageIeLength(lockingShift, singleShift);
+
+        boolean isConcatenated = length > getGsmSingleLength(nationalLanguageIeLength);
+        int partsLength = isConcatenated ? getGsmConcatLength(udhType, nationalLanguageIeLength) : length;
+        int udhLength = getGsmUdhLength(isConcatenated, udhType, nationalLanguageIeLength);
+
+        byte[][] segments = new byte[MAX_SMS_MESSAGES_PARTS + 1][];
+        int totalParts = 0;
+        int currentPosition = 0;
+        while (totalParts < segments.length && currentPosition < length) {
+            int currentMax = currentPosition + partsLength;
+            if (currentMax >= length) {
+                currentMax = length;
+            } else if (isEscapeAware && message[currentMax - 1] == GSM_ESCAPE) {
+                currentMax--;
+            }
+            int currentLength = currentMax - currentPosition;
+            byte[] segment = new byte[udhLength + currentLength];
+            System.arraycopy(message, currentPosition, segment, udhLength, currentLength);
+            segments[totalParts++] = segment;
+            currentPosition = currentMax;
+        }
+
+        if (totalParts < segments.length) {
+            segments = Arrays.copyOf(segments, totalParts);
+        }
+        writeGsmUdh(segments, isConcatenated, udhLength, udhType, ref, lockingShift, singleShift);
+        return segments;
+    }
+
+    /**
+     * Whether segments start with udh, then esm_class of submit_sm must have UDHI set.
+     * Concatenation udh is written only if message has more than one segment,
+     * national language information elements are written into every segment.
+     */
+    public static boolean hasUdh(UdhType udhType, int totalSegments, EncodingStatus encodingStatus) {
+        return totalSegments > 1 && (udhType == UdhType.udh_8bit || udhType == UdhType.udh_16bit)
+                || encodingStatus.hasNationalLanguage();
+    }
+
+    private static int getGsmUdhLength(boolean isConcatenated, UdhType udhType, int nationalLanguageIeLength) {
+        int udhLength = isConcatenated ? getUdhLength(udhType) : 0;
+        if (nationalLanguageIeLength > 0) {
+            //header length octet is already counted in concatenation udh
+            udhLength = (udhLength == 0 ? 1 : udhLength) + nationalLanguageIeLength;
+        }
+        return udhLength;
+    }
+
+    private static void writeGsmUdh(byte[][] segments,
+                                    boolean isConcatenated,
+                                    int udhLength,
+                                    UdhType udhType,
+                                    int ref,
+                                    GsmNationalLanguage lockingShift,
+                                    GsmNationalLanguage singleShift) {
+        if (udhLength == 0) {
+            return;
+        }
+        int concatenationUdhLength = isConcatenated ? getUdhLength(udhType) : 0;
+        for (int i = 0; i < segments.length; i++) {
+            byte[] segment = segments[i];
+            if (concatenationUdhLength > 0) {
+                writeUdh(segment, (byte) (i + 1), (byte) segments.length, ref, udhType);
+            }
+            int position = concatenationUdhLength > 0 ? concatenationUdhLength : 1;
+            if (lockingShift != null) {
+                position = writeNationalLanguageIe(segment, position, UDH_IE_LOCKING_SHIFT, lockingShift);
+            }
+            if (singleShift != null) {
+                writeNationalLanguageIe(segment, position, UDH_IE_SINGLE_SHIFT, singleShift);
+            }
+            segment[0] = (byte) (udhLength - 1); //header length
+        }
+    }
+
+    private static byte[][] getUcs2SegmentsOfMessage(byte[] message, UdhType udhType, int ref) {
+        int length = message.length;
+
+        int partsLength;
+        if (length <= UCS_LENGTH * 2) {
+            partsLength = length;
+        } else if (udhType == UdhType.udh_16bit) {
+            partsLength = UCS_CONCAT_16BIT_LENGTH * 2;
+        } else {
+            partsLength = UCS_CONCAT_LENGTH * 2;
+        }
+
+        int[] partsEnd = new int[MAX_SMS_MESSAGES_PARTS + 1];
+        int totalParts = 0;
+        int currentPosition = 0;
+        while (totalParts < partsEnd.length && currentPosition < length) {
+            int currentMax = currentPosition + partsLength;
+            if (currentMax >= length) {
+                currentMax = length;
+            } else if (Character.isSurrogatePair(getUcs2Char(message, currentMax - 2), getUcs2Char(message, currentMax))) {
+                currentMax -= 2;
+            }
+            partsEnd[totalParts++] = currentMax;
+            currentPosition = currentMax;
+        }
+
+        int udhLength = totalParts > 1 ? getUdhLength(udhType) : 0;
+        byte[][] segments = new byte[totalParts][];
+        currentPosition = 0;
+        for (int i = 0; i < totalParts; i++) {
+            int currentLength = partsEnd[i] - currentPosition;
+            byte[] segment = new byte[udhLength + currentLength];
+            if (udhLength > 0) {
+                writeUdh(segment, (byte) (i + 1), (byte) totalParts, ref, udhType);
+            }
+            System.arraycopy(message, currentPosition, segment, udhLength, currentLength);
+            segments[i] = segment;
+            currentPosition = partsEnd[i];
+        }
+        return segments;
+    }
+
+    /**
+     * Septets left for text in single GSM segment, udh with national language information elements is padded to whole septets.
+     */
+    static int getGsmSingleLength(int nationalLanguageIeLength) {
+        int udhLength = nationalLanguageIeLength > 0 ? 1 + nationalLanguageIeLength : 0;
+        return GSM_LENGTH - (udhLength * 8 + 6) / 7;
+    }
+
+    /**
+     * Septets left for text in GSM segment of concatenated message, for tlv and no_udh room of 8bit udh is kept
+     * as SMSC may add it.
+     */
+    static int getGsmConcatLength(UdhType udhType, int nationalLanguageIeLength) {
+        int udhLength = (udhType == UdhType.udh_16bit ? UDH_16BIT_LENGTH : UDH_8BIT_LENGTH) + nationalLanguageIeLength;
+        return GSM_LENGTH - (udhLength * 8 + 6) / 7;
+    }
+
+    static int getNationalLanguageIeLength(GsmNationalLanguage lockingShift, GsmNationalLanguage singleShift) {
+        return (lockingShift != null ? UDH_NATIONAL_LANGUAGE_IE_LENGTH : 0)
+                + (singleShift != null ? UDH_NATIONAL_LANGUAGE_IE_LENGTH : 0);
+    }
+
+    private static int writeNationalLanguageIe(byte[] segment, int position, byte identifier, GsmNationalLanguage language) {
+        segment[position] = identifier;
+        segment[position + 1] = 0x01; //ie length
+        segment[position + 2] = language.getIdentifier();
+        return position + UDH_NATIONAL_LANGUAGE_IE_LENGTH;
+    }
+
+    private static char getUcs2Char(byte[] message, int index) {
+        return (char) ((message[index] & 0xFF) << 8 | message[index + 1] & 0xFF);
+    }
+
+    private static int getUdhLength(UdhType udhType) {
+        if (udhType == UdhType.udh_16bit) {
+            return UDH_16BIT_LENGTH;
+        } else if (udhType == UdhType.udh_8bit) {
+            return UDH_8BIT_LENGTH;
+        }
+        return 0;
+    }
+
+    private static void writeUdh(byte[] segment, byte part, byte parts, int ref, UdhType udhType) {
+        if (udhType == UdhType.udh_16bit) {
+            segment[0] = 0x06; //header length
+            segment[1] = 0x08; //concatenated message, 16bit reference
+            segment[2] = 0x04; //ie length
+            segment[5] = parts;
+            segment[6] = part;
+        } else {
+            segment[0] = 0x05; //header length
+            segment[1] = 0x00; //concatenated message, 8bit reference
+            segment[2] = 0x03; //ie length
+            segment[4] = parts;
+            segment[5] = part;
+        }
+        writeUdhReference(segment, ref, udhType);
+    }
+
+    /**
+     * Rewrites reference number in concatenation udh of segment made by {@link #getSegmentsOfMessage}.
+     */
+    public static void writeUdhReference(byte[] segment, int ref, UdhType udhType) {
+        if (udhType == UdhType.udh_16bit) {
+            segment[3] = (byte) ((ref & 0xFF00) >> 8);
+            segment[4] = (byte) (ref & 0xFF);
+        } else {
+            segment[3] = (byte) ref;
+        }
+    }
+
     public static String generateSmsValidityPeriod(int ttlSeconds) {
         int seconds = ttlSeconds % SECONDS_IN_A_MINUTE;
         int totalMinutes = ttlSeconds / SECONDS_IN_A_MINUTE;
@@ -157,14 +476,9 @@ public final class TextUtils {
         byte[] aMessage;
 
         if (encoding == SMPPConstant.ALPHA_UCS2) { //Cyrilic
-            aMessage = text.getBytes(UCS2_ENCODING);
+            aMessage = text.getBytes(UCS2_CHARSET);
         } else {
-            CharsetEncoding charsetEncoding;
-            if (latinEncodingType == LatinEncodingType.GSM_0338) {
-                charsetEncoding = new Gsm0338Charset();
-            } else {
-                charsetEncoding = new LatinIso8859Charset();
-            }
+            CharsetEncoding charsetEncoding = getCharsetEncoding(latinEncodingType);
             aMessage = charsetEncoding.convertStringToBytes(text);
         }
 
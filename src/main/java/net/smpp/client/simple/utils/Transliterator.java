@@ -0,0 +1,111 @@
+package net.smpp.client.simple.utils;
+
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.utils.encoding.CharsetEncoding;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static net.smpp.client.simple.enums.LatinEncodingType.GSM_0338;
+
+/**
+ * Replaces chars which latin charset can't encode by their nearest equivalents,
+ * so one typographic quote doesn't send the whole message to UCS2.
+ * <p>
+ * Rules are compiled into a table indexed by char. Rules for chars which the charset encodes itself are dropped,
+ * text without replaceable chars is returned as is.
+ * Default rules are read from {@value #DEFAULT_RULES} in classpath.
+ */
+public final class Transliterator {
+
+    public static final String DEFAULT_RULES = "transliteration.properties";
+
+    private static final Logger LOGGER = Logger.getLogger(Transliterator.class);
+
+    private static final Map<Character, String> DEFAULT_RULES_MAP = loadDefaultRules();
+    private static final Transliterator GSM_TRANSLITERATOR = new Transliterator(DEFAULT_RULES_MAP, TextUtils.getCharsetEncoding(GSM_0338));
+    private static final Transliterator LATIN_TRANSLITERATOR = new Transliterator(DEFAULT_RULES_MAP, TextUtils.getCharsetEncoding(LatinEncodingType.LATIN_ISO8859_1));
+
+    private final String[] replacements = new String[Character.MAX_VALUE + 1];
+
+    public Transliterator(Map<Character, String> rules, CharsetEncoding charsetEncoding) {
+        for (Map.Entry<Character, String> rule : rules.entrySet()) {
+            char symbol = rule.getKey();
+            if (charsetEncoding.getEncodedLength(symbol) == 0) {
+                replacements[symbol] = rule.getValue();
+            }
+        }
+    }
+
+    /**
+     * Transliterator with default rules for the charset of latin encoding type.
+     */
+    public static Transliterator getInstance(LatinEncodingType latinEncodingType) {
+        return latinEncodingType == GSM_0338 ? GSM_TRANSLITERATOR : LATIN_TRANSLITERATOR;
+    }
+
+    /**
+     * Reads rules in properties format: key is a single char (\\uXXXX escapes may be used), value is its replacement.
+     *
+     * @throws IllegalArgumentException if key is not a single char
+     */
+    public static Map<Character, String> readRules(InputStream inputStream) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<Character, String> rules = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.length() != 1) {
+                throw new IllegalArgumentException("transliteration rule must be defined for single char: " + key);
+            }
+            rules.put(key.charAt(0), properties.getProperty(key));
+        }
+        return rules;
+    }
+
+    private static Map<Character, String> loadDefaultRules() {
+        try (InputStream inputStream = Transliterator.class.getClassLoader().getResourceAsStream(DEFAULT_RULES)) {
+            if (inputStream == null) {
+                LOGGER.error(DEFAULT_RULES + " not found, transliteration is disabled");
+                return Collections.emptyMap();
+            }
+            return readRules(inputStream);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.error(e.getMessage(), e);
+            return Collections.emptyMap();
+        }
+    }
+
+    public String transliterate(String text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && replacements[text.charAt(i)] == null) {
+            i++;
+        }
+        if (i == length) {
+            return text;
+        }
+
+        StringBuilder result = new StringBuilder(length + 16);
+        result.append(text, 0, i);
+        for (; i < length; i++) {
+            char symbol = text.charAt(i);
+            String replacement = replacements[symbol];
+            if (replacement == null) {
+                result.append(symbol);
+            } else {
+                result.append(replacement);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -1,5 +1,8 @@
 package net.smpp.client.simple.utils.encoding;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
 public interface CharsetEncoding {
 
 	byte[] convertStringToBytes(String text);
@@ -7,4 +10,83 @@ public interface CharsetEncoding {
 	String convertBytesToString(byte[] bytes);
 
 	boolean isLatinEncoding(String text);
+
+	/**
+	 * Count of bytes which symbol takes after encoding, 0 if symbol can't be encoded.
+	 */
+	int getEncodedLength(char symbol);
+
+	/**
+	 * Count of bytes which text[start, end) takes after encoding.
+	 */
+	int getEncodedLength(CharSequence text, int start, int end);
+
+	/**
+	 * Encodes text[start, end) into dst[offset, offset + length).
+	 * Stops before the first char which doesn't fit, escape sequences are never split.
+	 *
+	 * @return packed count of consumed chars and produced bytes, see {@link #consumed(long)} and {@link #produced(long)}
+	 */
+	long encode(CharSequence text, int start, int end, byte[] dst, int offset, int length);
+
+	/**
+	 * Decodes src[offset, offset + length) as a complete payload into dst[dstOffset, dstOffset + dstLength).
+	 * Stops before the first byte sequence which doesn't fit.
+	 *
+	 * @return packed count of consumed bytes and produced chars, see {@link #consumed(long)} and {@link #produced(long)}
+	 */
+	long decode(byte[] src, int offset, int length, char[] dst, int dstOffset, int dstLength);
+
+	/**
+	 * Encodes remaining chars of src into dst, positions of both buffers are moved forward.
+	 */
+	default void encode(CharBuffer src, ByteBuffer dst) {
+		if (dst.hasArray()) {
+			long result = encode(src, 0, src.remaining(), dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+			src.position(src.position() + consumed(result));
+			dst.position(dst.position() + produced(result));
+		} else {
+			byte[] chunk = new byte[Math.min(dst.remaining(), 256)];
+			while (src.hasRemaining() && dst.hasRemaining()) {
+				long result = encode(src, 0, src.remaining(), chunk, 0, Math.min(dst.remaining(), chunk.length));
+				if (consumed(result) == 0) {
+					break;
+				}
+				src.position(src.position() + consumed(result));
+				dst.put(chunk, 0, produced(result));
+			}
+		}
+	}
+
+	/**
+	 * Decodes remaining bytes of src as a complete payload into dst, positions of both buffers are moved forward.
+	 */
+	default void decode(ByteBuffer src, CharBuffer dst) {
+		if (src.hasArray() && dst.hasArray()) {
+			long result = decode(src.array(), src.arrayOffset() + src.position(), src.remaining(),
+				dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+			src.position(src.position() + consumed(result));
+			dst.position(dst.position() + produced(result));
+		} else {
+			//payload must be decoded at once, copy it to heap
+			byte[] bytes = new byte[src.remaining()];
+			src.duplicate().get(bytes);
+			char[] chars = new char[Math.min(bytes.length, dst.remaining())];
+			long result = decode(bytes, 0, bytes.length, chars, 0, chars.length);
+			src.position(src.position() + consumed(result));
+			dst.put(chars, 0, produced(result));
+		}
+	}
+
+	static long result(int consumed, int produced) {
+		return (long) consumed << 32 | produced & 0xFFFFFFFFL;
+	}
+
+	static int consumed(long result) {
+		return (int) (result >>> 32);
+	}
+
+	static int produced(long result) {
+		return (int) result;
+	}
 }
@@ -0,0 +1,187 @@
+package net.smpp.client.simple.utils.encoding;
+
+import java.util.Arrays;
+
+/**
+ * brief National language shift tables of 3GPP TS 23.038 (annex A) supported by {@link Gsm0338Charset}.
+ * Locking shift table replaces the default alphabet, single shift table replaces the default extension table.
+ * Tables are selected by udh information elements 0x25 (locking shift) and 0x24 (single shift).
+ */
+public enum GsmNationalLanguage {
+	TURKISH((byte) 0x01, true),
+	SPANISH((byte) 0x02, false),
+	PORTUGUESE((byte) 0x03, true);
+
+	private static final char NO_CHAR = '\uFFFF';
+
+	static {
+		//turkish locking shift, differences from default alphabet
+		TURKISH.mapLockingShiftChar((char) 0x20AC, (byte) 0x04); //	4	€	EURO SIGN
+		TURKISH.mapLockingShiftChar((char) 0x0131, (byte) 0x07); //	7	ı	LATIN SMALL LETTER DOTLESS I
+		TURKISH.mapLockingShiftChar((char) 0x00C7, (byte) 0x09); //	9	Ç	LATIN CAPITAL LETTER C WITH CEDILLA
+		TURKISH.mapLockingShiftChar((char) 0x011E, (byte) 0x0B); //	11	Ğ	LATIN CAPITAL LETTER G WITH BREVE
+		TURKISH.mapLockingShiftChar((char) 0x011F, (byte) 0x0C); //	12	ğ	LATIN SMALL LETTER G WITH BREVE
+		TURKISH.mapLockingShiftChar((char) 0x015E, (byte) 0x1C); //	28	Ş	LATIN CAPITAL LETTER S WITH CEDILLA
+		TURKISH.mapLockingShiftChar((char) 0x015F, (byte) 0x1D); //	29	ş	LATIN SMALL LETTER S WITH CEDILLA
+		TURKISH.mapLockingShiftChar((char) 0x0130, (byte) 0x40); //	64	İ	LATIN CAPITAL LETTER I WITH DOT ABOVE
+		TURKISH.mapLockingShiftChar((char) 0x00E7, (byte) 0x60); //	96	ç	LATIN SMALL LETTER C WITH CEDILLA
+
+		//turkish single shift
+		TURKISH.mapSingleShiftChar((char) 0x000C, (byte) 0x0A); //	0x1B0A	10		FORM FEED
+		TURKISH.mapSingleShiftChar((char) 0x005E, (byte) 0x14); //	0x1B14	20	^	CIRCUMFLEX ACCENT
+		TURKISH.mapSingleShiftChar((char) 0x007B, (byte) 0x28); //	0x1B28	40	{	LEFT CURLY BRACKET
+		TURKISH.mapSingleShiftChar((char) 0x007D, (byte) 0x29); //	0x1B29	41	}	RIGHT CURLY BRACKET
+		TURKISH.mapSingleShiftChar((char) 0x005C, (byte) 0x2F); //	0x1B2F	47	\	REVERSE SOLIDUS
+		TURKISH.mapSingleShiftChar((char) 0x005B, (byte) 0x3C); //	0x1B3C	60	[	LEFT SQUARE BRACKET
+		TURKISH.mapSingleShiftChar((char) 0x007E, (byte) 0x3D); //	0x1B3D	61	~	TILDE
+		TURKISH.mapSingleShiftChar((char) 0x005D, (byte) 0x3E); //	0x1B3E	62	]	RIGHT SQUARE BRACKET
+		TURKISH.mapSingleShiftChar((char) 0x007C, (byte) 0x40); //	0x1B40	64	|	VERTICAL LINE
+		TURKISH.mapSingleShiftChar((char) 0x011E, (byte) 0x47); //	0x1B47	71	Ğ	LATIN CAPITAL LETTER G WITH BREVE
+		TURKISH.mapSingleShiftChar((char) 0x0130, (byte) 0x49); //	0x1B49	73	İ	LATIN CAPITAL LETTER I WITH DOT ABOVE
+		TURKISH.mapSingleShiftChar((char) 0x015E, (byte) 0x53); //	0x1B53	83	Ş	LATIN CAPITAL LETTER S WITH CEDILLA
+		TURKISH.mapSingleShiftChar((char) 0x00E7, (byte) 0x63); //	0x1B63	99	ç	LATIN SMALL LETTER C WITH CEDILLA
+		TURKISH.mapSingleShiftChar((char) 0x20AC, (byte) 0x65); //	0x1B65	101	€	EURO SIGN
+		TURKISH.mapSingleShiftChar((char) 0x011F, (byte) 0x67); //	0x1B67	103	ğ	LATIN SMALL LETTER G WITH BREVE
+		TURKISH.mapSingleShiftChar((char) 0x0131, (byte) 0x69); //	0x1B69	105	ı	LATIN SMALL LETTER DOTLESS I
+		TURKISH.mapSingleShiftChar((char) 0x015F, (byte) 0x73); //	0x1B73	115	ş	LATIN SMALL LETTER S WITH CEDILLA
+
+		//spanish single shift, spanish has no locking shift table
+		SPANISH.mapSingleShiftChar((char) 0x00E7, (byte) 0x09); //	0x1B09	9	ç	LATIN SMALL LETTER C WITH CEDILLA
+		SPANISH.mapSingleShiftChar((char) 0x000C, (byte) 0x0A); //	0x1B0A	10		FORM FEED
+		SPANISH.mapSingleShiftChar((char) 0x005E, (byte) 0x14); //	0x1B14	20	^	CIRCUMFLEX ACCENT
+		SPANISH.mapSingleShiftChar((char) 0x007B, (byte) 0x28); //	0x1B28	40	{	LEFT CURLY BRACKET
+		SPANISH.mapSingleShiftChar((char) 0x007D, (byte) 0x29); //	0x1B29	41	}	RIGHT CURLY BRACKET
+		SPANISH.mapSingleShiftChar((char) 0x005C, (byte) 0x2F); //	0x1B2F	47	\	REVERSE SOLIDUS
+		SPANISH.mapSingleShiftChar((char) 0x005B, (byte) 0x3C); //	0x1B3C	60	[	LEFT SQUARE BRACKET
+		SPANISH.mapSingleShiftChar((char) 0x007E, (byte) 0x3D); //	0x1B3D	61	~	TILDE
+		SPANISH.mapSingleShiftChar((char) 0x005D, (byte) 0x3E); //	0x1B3E	62	]	RIGHT SQUARE BRACKET
+		SPANISH.mapSingleShiftChar((char) 0x007C, (byte) 0x40); //	0x1B40	64	|	VERTICAL LINE
+		SPANISH.mapSingleShiftChar((char) 0x00C1, (byte) 0x41); //	0x1B41	65	Á	LATIN CAPITAL LETTER A WITH ACUTE
+		SPANISH.mapSingleShiftChar((char) 0x00CD, (byte) 0x49); //	0x1B49	73	Í	LATIN CAPITAL LETTER I WITH ACUTE
+		SPANISH.mapSingleShiftChar((char) 0x00D3, (byte) 0x4F); //	0x1B4F	79	Ó	LATIN CAPITAL LETTER O WITH ACUTE
+		SPANISH.mapSingleShiftChar((char) 0x00DA, (byte) 0x55); //	0x1B55	85	Ú	LATIN CAPITAL LETTER U WITH ACUTE
+		SPANISH.mapSingleShiftChar((char) 0x00E1, (byte) 0x61); //	0x1B61	97	á	LATIN SMALL LETTER A WITH ACUTE
+		SPANISH.mapSingleShiftChar((char) 0x20AC, (byte) 0x65); //	0x1B65	101	€	EURO SIGN
+		SPANISH.mapSingleShiftChar((char) 0x00ED, (byte) 0x69); //	0x1B69	105	í	LATIN SMALL LETTER I WITH ACUTE
+		SPANISH.mapSingleShiftChar((char) 0x00F3, (byte) 0x6F); //	0x1B6F	111	ó	LATIN SMALL LETTER O WITH ACUTE
+		SPANISH.mapSingleShiftChar((char) 0x00FA, (byte) 0x75); //	0x1B75	117	ú	LATIN SMALL LETTER U WITH ACUTE
+
+		//portuguese locking shift, differences from default alphabet
+		PORTUGUESE.mapLockingShiftChar((char) 0x00EA, (byte) 0x04); //	4	ê	LATIN SMALL LETTER E WITH CIRCUMFLEX
+		PORTUGUESE.mapLockingShiftChar((char) 0x00FA, (byte) 0x06); //	6	ú	LATIN SMALL LETTER U WITH ACUTE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00ED, (byte) 0x07); //	7	í	LATIN SMALL LETTER I WITH ACUTE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00F3, (byte) 0x08); //	8	ó	LATIN SMALL LETTER O WITH ACUTE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00D4, (byte) 0x0B); //	11	Ô	LATIN CAPITAL LETTER O WITH CIRCUMFLEX
+		PORTUGUESE.mapLockingShiftChar((char) 0x00F4, (byte) 0x0C); //	12	ô	LATIN SMALL LETTER O WITH CIRCUMFLEX
+		PORTUGUESE.mapLockingShiftChar((char) 0x00C1, (byte) 0x0E); //	14	Á	LATIN CAPITAL LETTER A WITH ACUTE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00E1, (byte) 0x0F); //	15	á	LATIN SMALL LETTER A WITH ACUTE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00AA, (byte) 0x12); //	18	ª	FEMININE ORDINAL INDICATOR
+		PORTUGUESE.mapLockingShiftChar((char) 0x00C7, (byte) 0x13); //	19	Ç	LATIN CAPITAL LETTER C WITH CEDILLA
+		PORTUGUESE.mapLockingShiftChar((char) 0x00C0, (byte) 0x14); //	20	À	LATIN CAPITAL LETTER A WITH GRAVE
+		PORTUGUESE.mapLockingShiftChar((char) 0x221E, (byte) 0x15); //	21	∞	INFINITY
+		PORTUGUESE.mapLockingShiftChar((char) 0x005E, (byte) 0x16); //	22	^	CIRCUMFLEX ACCENT
+		PORTUGUESE.mapLockingShiftChar((char) 0x005C, (byte) 0x17); //	23	\	REVERSE SOLIDUS
+		PORTUGUESE.mapLockingShiftChar((char) 0x20AC, (byte) 0x18); //	24	€	EURO SIGN
+		PORTUGUESE.mapLockingShiftChar((char) 0x00D3, (byte) 0x19); //	25	Ó	LATIN CAPITAL LETTER O WITH ACUTE
+		PORTUGUESE.mapLockingShiftChar((char) 0x007C, (byte) 0x1A); //	26	|	VERTICAL LINE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00C2, (byte) 0x1C); //	28	Â	LATIN CAPITAL LETTER A WITH CIRCUMFLEX
+		PORTUGUESE.mapLockingShiftChar((char) 0x00E2, (byte) 0x1D); //	29	â	LATIN SMALL LETTER A WITH CIRCUMFLEX
+		PORTUGUESE.mapLockingShiftChar((char) 0x00CA, (byte) 0x1E); //	30	Ê	LATIN CAPITAL LETTER E WITH CIRCUMFLEX
+		PORTUGUESE.mapLockingShiftChar((char) 0x00BA, (byte) 0x24); //	36	º	MASCULINE ORDINAL INDICATOR
+		PORTUGUESE.mapLockingShiftChar((char) 0x00CD, (byte) 0x40); //	64	Í	LATIN CAPITAL LETTER I WITH ACUTE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00C3, (byte) 0x5B); //	91	Ã	LATIN CAPITAL LETTER A WITH TILDE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00D5, (byte) 0x5C); //	92	Õ	LATIN CAPITAL LETTER O WITH TILDE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00DA, (byte) 0x5D); //	93	Ú	LATIN CAPITAL LETTER U WITH ACUTE
+		PORTUGUESE.mapLockingShiftChar((char) 0x007E, (byte) 0x60); //	96	~	TILDE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00E3, (byte) 0x7B); //	123	ã	LATIN SMALL LETTER A WITH TILDE
+		PORTUGUESE.mapLockingShiftChar((char) 0x00F5, (byte) 0x7C); //	124	õ	LATIN SMALL LETTER O WITH TILDE
+		PORTUGUESE.mapLockingShiftChar((char) 0x0060, (byte) 0x7D); //	125	`	GRAVE ACCENT
+
+		//portuguese single shift
+		PORTUGUESE.mapSingleShiftChar((char) 0x00EA, (byte) 0x05); //	0x1B05	5	ê	LATIN SMALL LETTER E WITH CIRCUMFLEX
+		PORTUGUESE.mapSingleShiftChar((char) 0x00E7, (byte) 0x09); //	0x1B09	9	ç	LATIN SMALL LETTER C WITH CEDILLA
+		PORTUGUESE.mapSingleShiftChar((char) 0x000C, (byte) 0x0A); //	0x1B0A	10		FORM FEED
+		PORTUGUESE.mapSingleShiftChar((char) 0x00D4, (byte) 0x0B); //	0x1B0B	11	Ô	LATIN CAPITAL LETTER O WITH CIRCUMFLEX
+		PORTUGUESE.mapSingleShiftChar((char) 0x00F4, (byte) 0x0C); //	0x1B0C	12	ô	LATIN SMALL LETTER O WITH CIRCUMFLEX
+		PORTUGUESE.mapSingleShiftChar((char) 0x00C1, (byte) 0x0E); //	0x1B0E	14	Á	LATIN CAPITAL LETTER A WITH ACUTE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00E1, (byte) 0x0F); //	0x1B0F	15	á	LATIN SMALL LETTER A WITH ACUTE
+		PORTUGUESE.mapSingleShiftChar((char) 0x03A6, (byte) 0x12); //	0x1B12	18	Φ	GREEK CAPITAL LETTER PHI
+		PORTUGUESE.mapSingleShiftChar((char) 0x0393, (byte) 0x13); //	0x1B13	19	Γ	GREEK CAPITAL LETTER GAMMA
+		PORTUGUESE.mapSingleShiftChar((char) 0x005E, (byte) 0x14); //	0x1B14	20	^	CIRCUMFLEX ACCENT
+		PORTUGUESE.mapSingleShiftChar((char) 0x03A9, (byte) 0x15); //	0x1B15	21	Ω	GREEK CAPITAL LETTER OMEGA
+		PORTUGUESE.mapSingleShiftChar((char) 0x03A0, (byte) 0x16); //	0x1B16	22	Π	GREEK CAPITAL LETTER PI
+		PORTUGUESE.mapSingleShiftChar((char) 0x03A8, (byte) 0x17); //	0x1B17	23	Ψ	GREEK CAPITAL LETTER PSI
+		PORTUGUESE.mapSingleShiftChar((char) 0x03A3, (byte) 0x18); //	0x1B18	24	Σ	GREEK CAPITAL LETTER SIGMA
+		PORTUGUESE.mapSingleShiftChar((char) 0x0398, (byte) 0x19); //	0x1B19	25	Θ	GREEK CAPITAL LETTER THETA
+		PORTUGUESE.mapSingleShiftChar((char) 0x00CA, (byte) 0x1F); //	0x1B1F	31	Ê	LATIN CAPITAL LETTER E WITH CIRCUMFLEX
+		PORTUGUESE.mapSingleShiftChar((char) 0x007B, (byte) 0x28); //	0x1B28	40	{	LEFT CURLY BRACKET
+		PORTUGUESE.mapSingleShiftChar((char) 0x007D, (byte) 0x29); //	0x1B29	41	}	RIGHT CURLY BRACKET
+		PORTUGUESE.mapSingleShiftChar((char) 0x005C, (byte) 0x2F); //	0x1B2F	47	\	REVERSE SOLIDUS
+		PORTUGUESE.mapSingleShiftChar((char) 0x005B, (byte) 0x3C); //	0x1B3C	60	[	LEFT SQUARE BRACKET
+		PORTUGUESE.mapSingleShiftChar((char) 0x007E, (byte) 0x3D); //	0x1B3D	61	~	TILDE
+		PORTUGUESE.mapSingleShiftChar((char) 0x005D, (byte) 0x3E); //	0x1B3E	62	]	RIGHT SQUARE BRACKET
+		PORTUGUESE.mapSingleShiftChar((char) 0x007C, (byte) 0x40); //	0x1B40	64	|	VERTICAL LINE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00C0, (byte) 0x41); //	0x1B41	65	À	LATIN CAPITAL LETTER A WITH GRAVE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00CD, (byte) 0x49); //	0x1B49	73	Í	LATIN CAPITAL LETTER I WITH ACUTE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00D3, (byte) 0x4F); //	0x1B4F	79	Ó	LATIN CAPITAL LETTER O WITH ACUTE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00DA, (byte) 0x55); //	0x1B55	85	Ú	LATIN CAPITAL LETTER U WITH ACUTE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00C3, (byte) 0x5B); //	0x1B5B	91	Ã	LATIN CAPITAL LETTER A WITH TILDE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00D5, (byte) 0x5C); //	0x1B5C	92	Õ	LATIN CAPITAL LETTER O WITH TILDE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00C2, (byte) 0x61); //	0x1B61	97	Â	LATIN CAPITAL LETTER A WITH CIRCUMFLEX
+		PORTUGUESE.mapSingleShiftChar((char) 0x20AC, (byte) 0x65); //	0x1B65	101	€	EURO SIGN
+		PORTUGUESE.mapSingleShiftChar((char) 0x00ED, (byte) 0x69); //	0x1B69	105	í	LATIN SMALL LETTER I WITH ACUTE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00F3, (byte) 0x6F); //	0x1B6F	111	ó	LATIN SMALL LETTER O WITH ACUTE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00FA, (byte) 0x75); //	0x1B75	117	ú	LATIN SMALL LETTER U WITH ACUTE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00E3, (byte) 0x7B); //	0x1B7B	123	ã	LATIN SMALL LETTER A WITH TILDE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00F5, (byte) 0x7C); //	0x1B7C	124	õ	LATIN SMALL LETTER O WITH TILDE
+		PORTUGUESE.mapSingleShiftChar((char) 0x00E2, (byte) 0x7F); //	0x1B7F	127	â	LATIN SMALL LETTER A WITH CIRCUMFLEX
+	}
+
+	private final byte identifier;
+	//NO_CHAR in locking shift table means the same char as in default alphabet
+	private final char[] lockingShiftTable;
+	private final char[] singleShiftTable = new char[128];
+
+	GsmNationalLanguage(byte identifier, boolean hasLockingShift) {
+		this.identifier = identifier;
+		this.lockingShiftTable = hasLockingShift ? new char[128] : null;
+		if (hasLockingShift) {
+			Arrays.fill(lockingShiftTable, NO_CHAR);
+		}
+		Arrays.fill(singleShiftTable, NO_CHAR);
+	}
+
+	/**
+	 * Value of national language identifier in udh information elements.
+	 */
+	public byte getIdentifier() {
+		return identifier;
+	}
+
+	public boolean hasLockingShift() {
+		return lockingShiftTable != null;
+	}
+
+	private void mapLockingShiftChar(char symbol, byte value) {
+		lockingShiftTable[value] = symbol;
+	}
+
+	private void mapSingleShiftChar(char symbol, byte value) {
+		singleShiftTable[value] = symbol;
+	}
+
+	/**
+	 * Overwrites chars of default alphabet which differ in locking shift table.
+	 */
+	void applyLockingShift(char[] byteToUnicode) {
+		for (int i = 0; i < lockingShiftTable.length; i++) {
+			if (lockingShiftTable[i] != NO_CHAR) {
+				byteToUnicode[i] = lockingShiftTable[i];
+			}
+		}
+	}
+
+	char[] getSingleShiftTable() {
+		return singleShiftTable.clone();
+	}
+}
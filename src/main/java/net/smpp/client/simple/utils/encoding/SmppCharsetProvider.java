@@ -0,0 +1,47 @@
+package net.smpp.client.simple.utils.encoding;
+
+import java.nio.charset.Charset;
+import java.nio.charset.spi.CharsetProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * brief Registers smpp charsets in {@link Charset#forName(String)},
+ * so they can be used with Reader/Writer/Channels.
+ * Provider is loaded by system class loader, inside of the application prefer {@link net.smpp.client.simple.utils.TextUtils#getCharset}.
+ */
+public class SmppCharsetProvider extends CharsetProvider {
+
+	private static final List<Charset> CHARSETS = createCharsets();
+
+	private static List<Charset> createCharsets() {
+		List<Charset> charsets = new ArrayList<>();
+		charsets.add(new Gsm0338Charset());
+		charsets.add(new LatinIso8859Charset());
+		//national language variants of GSM 03.38
+		charsets.addAll(Gsm0338Charset.getNationalCharsets());
+		return Collections.unmodifiableList(charsets);
+	}
+
+	@Override
+	public Iterator<Charset> charsets() {
+		return CHARSETS.iterator();
+	}
+
+	@Override
+	public Charset charsetForName(String charsetName) {
+		for (Charset charset : CHARSETS) {
+			if (charset.name().equalsIgnoreCase(charsetName)) {
+				return charset;
+			}
+			for (String alias : charset.aliases()) {
+				if (alias.equalsIgnoreCase(charsetName)) {
+					return charset;
+				}
+			}
+		}
+		return null;
+	}
+}
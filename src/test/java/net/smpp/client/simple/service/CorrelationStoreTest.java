@@ -0,0 +1,153 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.Correlation;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CorrelationStoreTest {
+
+    //16 slots per stripe, entries of a test are put into the same stripe
+    private static final int CAPACITY = 256;
+    private static final int STRIPE_SLOTS = 16;
+    private static final int STRIPE = 3;
+    private static final long TTL_HOURS = 1;
+
+    private final CorrelationStore store = new CorrelationStore(CAPACITY, TTL_HOURS, 16);
+    private long nextKey = 1;
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void findsEntriesWrappedAroundEndOfTable() {
+        //home slot is the last one, entries take slots 15, 0 and 1
+        String[] ids = idsWithHome(STRIPE_SLOTS - 1, 3);
+        String afterWrap = idsWithHome(0, 1)[0];
+        for (int i = 0; i < ids.length; i++) {
+            store.put(ids[i], i, System.currentTimeMillis(), i);
+        }
+        store.put(afterWrap, 100, System.currentTimeMillis(), 0);
+
+        for (int i = 0; i < ids.length; i++) {
+            assertCorrelation(ids[i], i, i);
+        }
+        assertCorrelation(afterWrap, 100, 0);
+
+        //entries after the wrap point are shifted back over it
+        assertNotNull(store.find(receipt(ids[0]), true));
+        assertNull(store.find(receipt(ids[0]), false));
+        assertCorrelation(ids[1], 1, 1);
+        assertCorrelation(ids[2], 2, 2);
+        assertCorrelation(afterWrap, 100, 0);
+        assertEquals(3, store.getSize());
+    }
+
+    @Test
+    public void removesEntryInMiddleOfProbeChain() {
+        String[] sameHome = idsWithHome(5, 3);
+        String nextHome = idsWithHome(6, 1)[0];
+        String farHome = idsWithHome(9, 1)[0];
+        for (int i = 0; i < sameHome.length; i++) {
+            store.put(sameHome[i], i, System.currentTimeMillis(), i);
+        }
+        //slots 5..7 are taken, entry of home 6 goes to 8, entry of home 9 stays in its home
+        store.put(nextHome, 10, System.currentTimeMillis(), 0);
+        store.put(farHome, 20, System.currentTimeMillis(), 0);
+
+        Correlation removed = store.find(receipt(sameHome[1]), true);
+        assertNotNull(removed);
+        assertEquals(1, removed.getReference());
+        assertNull(store.find(receipt(sameHome[1]), true));
+
+        assertCorrelation(sameHome[0], 0, 0);
+        assertCorrelation(sameHome[2], 2, 2);
+        assertCorrelation(nextHome, 10, 0);
+        assertCorrelation(farHome, 20, 0);
+        assertEquals(4, store.getSize());
+    }
+
+    @Test
+    public void replacesEntryWithSameId() {
+        String id = idsWithHome(7, 1)[0];
+        store.put(id, 1, System.currentTimeMillis(), 0);
+        store.put(id, 2, System.currentTimeMillis(), 1);
+
+        assertCorrelation(id, 2, 1);
+        assertEquals(1, store.getSize());
+    }
+
+    @Test
+    public void evictsExpiredEntriesAndKeepsShiftedOnes() {
+        long now = System.currentTimeMillis();
+        long expired = now - TimeUnit.HOURS.toMillis(TTL_HOURS + 1);
+        //chain of home 14 takes slots 14, 15, 0, 1 and 2, expired and live entries alternate
+        String[] ids = idsWithHome(STRIPE_SLOTS - 2, 5);
+        for (int i = 0; i < ids.length; i++) {
+            store.put(ids[i], i, i % 2 == 0 ? expired : now, i);
+        }
+
+        store.evict();
+
+        assertEquals(3, store.getEvicted());
+        assertEquals(2, store.getSize());
+        for (int i = 0; i < ids.length; i++) {
+            if (i % 2 == 0) {
+                assertNull(store.find(receipt(ids[i]), false));
+            } else {
+                assertCorrelation(ids[i], i, i);
+            }
+        }
+    }
+
+    @Test
+    public void findsByDecimalIdOfReceipt() {
+        CorrelationStore decimalStore = new CorrelationStore(CAPACITY, TTL_HOURS, 10);
+        try {
+            decimalStore.put("ff", 1, System.currentTimeMillis(), 0);
+            assertNotNull(decimalStore.find(receipt("255"), false));
+
+            ParsedReceipt receiptedMessageId = receipt("ff");
+            receiptedMessageId.setReceiptedMessageId(true);
+            assertNotNull(decimalStore.find(receiptedMessageId, false));
+        } finally {
+            decimalStore.close();
+        }
+    }
+
+    private void assertCorrelation(String id, long reference, int segmentIndex) {
+        Correlation correlation = store.find(receipt(id), false);
+        assertNotNull(id, correlation);
+        assertEquals(reference, correlation.getReference());
+        assertEquals(segmentIndex, correlation.getSegmentIndex());
+    }
+
+    /**
+     * Hex message ids of the test stripe with the given home slot, key of hex id is its value.
+     */
+    private String[] idsWithHome(int home, int count) {
+        String[] ids = new String[count];
+        for (int i = 0; i < count; nextKey++) {
+            long mixed = CorrelationStore.mix(nextKey);
+            if ((int) (mixed >>> 60) == STRIPE && ((int) mixed & (STRIPE_SLOTS - 1)) == home) {
+                ids[i++] = Long.toHexString(nextKey);
+            }
+        }
+        return ids;
+    }
+
+    private static ParsedReceipt receipt(String id) {
+        byte[] bytes = id.getBytes(StandardCharsets.US_ASCII);
+        ParsedReceipt receipt = new ParsedReceipt();
+        receipt.setId(bytes, 0, bytes.length);
+        return receipt;
+    }
+}
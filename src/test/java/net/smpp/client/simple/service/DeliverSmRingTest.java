@@ -0,0 +1,122 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.enums.WaitStrategy;
+import org.jsmpp.bean.DeliverSm;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeliverSmRingTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS_PER_PRODUCER = 20000;
+    //ring wraps thousands of times
+    private static final int CAPACITY = 8;
+
+    @Test
+    public void deliversEventsOfAllProducersInTheirOrder() throws InterruptedException {
+        //ring has no stop, consumers of spinning strategies would take cores for the rest of the tests
+        assertDeliversAll(WaitStrategy.BLOCKING);
+        assertDeliversAll(WaitStrategy.SLEEPING);
+    }
+
+    @Test
+    public void rejectsEventWhenFull() throws InterruptedException {
+        CountDownLatch handlerStarted = new CountDownLatch(1);
+        CountDownLatch handlerReleased = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        DeliverSmRing ring = new DeliverSmRing("test-ring", 4, WaitStrategy.BLOCKING, event -> {
+            handlerStarted.countDown();
+            try {
+                handlerReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.incrementAndGet();
+        });
+
+        assertTrue(ring.tryPublish(deliverSm("source", 0)));
+        assertTrue(handlerStarted.await(5, TimeUnit.SECONDS));
+        //slots are freed after the batch, the slot being processed is still taken
+        for (int i = 1; i < 4; i++) {
+            assertTrue(ring.tryPublish(deliverSm("source", i)));
+        }
+        assertFalse(ring.tryPublish(deliverSm("source", 4)));
+        assertEquals(4, ring.getBacklog());
+
+        handlerReleased.countDown();
+        ring.publish(deliverSm("source", 4));
+        waitForBacklog(ring);
+        assertEquals(5, handled.get());
+    }
+
+    private static void assertDeliversAll(WaitStrategy waitStrategy) throws InterruptedException {
+        Map<String, Integer> nextSequence = new ConcurrentHashMap<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicInteger handled = new AtomicInteger();
+        DeliverSmRing ring = new DeliverSmRing("test-ring-" + waitStrategy, CAPACITY, waitStrategy, event -> {
+            int expected = nextSequence.getOrDefault(event.getSourceAddr(), 0);
+            if (event.getSequenceNumber() != expected || event.getShortMessage()[0] != (byte) expected) {
+                failure.compareAndSet(null, String.format("%s: %s from %s, expected %s",
+                        waitStrategy, event.getSequenceNumber(), event.getSourceAddr(), expected));
+            }
+            nextSequence.put(event.getSourceAddr(), expected + 1);
+            handled.incrementAndGet();
+        });
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            String sourceAddr = "producer-" + p;
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                        ring.publish(deliverSm(sourceAddr, i));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, sourceAddr);
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join(TimeUnit.SECONDS.toMillis(30));
+            assertFalse(producer.isAlive());
+        }
+
+        waitForBacklog(ring);
+        assertNull(failure.get());
+        assertEquals(PRODUCERS * EVENTS_PER_PRODUCER, handled.get());
+        for (int p = 0; p < PRODUCERS; p++) {
+            assertEquals(EVENTS_PER_PRODUCER, (int) nextSequence.get("producer-" + p));
+        }
+    }
+
+    private static void waitForBacklog(DeliverSmRing ring) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ring.getBacklog() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, ring.getBacklog());
+    }
+
+    private static DeliverSm deliverSm(String sourceAddr, int sequenceNumber) {
+        DeliverSm deliverSm = new DeliverSm();
+        deliverSm.setSourceAddr(sourceAddr);
+        deliverSm.setSequenceNumber(sequenceNumber);
+        deliverSm.setShortMessage(new byte[]{(byte) sequenceNumber});
+        return deliverSm;
+    }
+}
@@ -0,0 +1,254 @@
+package net.smpp.client.simple.service;
+
+import net.smpp.client.simple.domain.DataMessage;
+import net.smpp.client.simple.domain.ServiceType;
+import net.smpp.client.simple.domain.UdhType;
+import net.smpp.client.simple.enums.LatinEncodingType;
+import net.smpp.client.simple.enums.MessageLane;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OutboundJournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    //flush is called by tests
+    private static final long FLUSH_INTERVAL = 3_600_000;
+    private static final int HEADER_LENGTH = 17;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+    private OutboundJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temporaryFolder.newFolder("journal");
+        journal = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    public void replaysRecordsWhichAreNotAcknowledged() throws IOException {
+        long first = journal.append(OutboundJournal.encode(message("1", "first"), MessageLane.TRANSACTIONAL));
+        long second = journal.append(OutboundJournal.encode(message("2", "second"), MessageLane.NORMAL));
+        long third = journal.append(OutboundJournal.encode(message("3", "third"), MessageLane.BULK));
+        journal.acknowledge(second);
+        reopen();
+
+        List<Replayed> replayed = replay();
+        assertEquals(2, replayed.size());
+        assertReplayed(replayed.get(0), first, "1", "first", MessageLane.TRANSACTIONAL);
+        assertReplayed(replayed.get(1), third, "3", "third", MessageLane.BULK);
+        assertEquals(0, journal.replay((dataMessage, lane, sequence, appendTime) -> {
+        }));
+    }
+
+    @Test
+    public void keepsFieldsOfMessage() throws IOException {
+        DataMessage dataMessage = new DataMessage("alpha", "79001234567", "text", UdhType.udh_16bit, ServiceType.cellular_messaging_CMT,
+                null, (byte) 5, null, (byte) 1, (byte) 1, LatinEncodingType.LATIN_ISO8859_1, 1, true);
+        journal.append(OutboundJournal.encode(dataMessage, MessageLane.HIGH));
+        reopen();
+
+        DataMessage replayed = replay().get(0).dataMessage;
+        assertEquals("alpha", replayed.getAlphaName());
+        assertEquals("79001234567", replayed.getPhone());
+        assertEquals("text", replayed.getText());
+        assertEquals(UdhType.udh_16bit, replayed.getUdhType());
+        assertEquals(ServiceType.cellular_messaging_CMT, replayed.getServiceType());
+        assertNull(replayed.getValidityPeriod());
+        assertEquals(Byte.valueOf((byte) 5), replayed.getSourceAddrTon());
+        assertNull(replayed.getSourceAddrNpi());
+        assertEquals(LatinEncodingType.LATIN_ISO8859_1, replayed.getLatinEncodingType());
+        assertEquals(1, replayed.getRegisteredDelivery());
+        assertTrue(replayed.isTransliteration());
+    }
+
+    @Test
+    public void acknowledgedRecordIsNotReplayedAfterFlush() throws IOException {
+        long sequence = journal.append(OutboundJournal.encode(message("1", "first"), MessageLane.NORMAL));
+        journal.flush();
+        journal.acknowledge(sequence);
+        reopen();
+
+        assertTrue(replay().isEmpty());
+    }
+
+    @Test
+    public void truncatesTornRecord() throws IOException {
+        long first = journal.append(OutboundJournal.encode(message("1", "first"), MessageLane.NORMAL));
+        long second = journal.append(OutboundJournal.encode(message("2", "second"), MessageLane.NORMAL));
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles()[0], "rw")) {
+            //last byte of the payload of the second record
+            long position = second + HEADER_LENGTH + recordLength(file, second) - 1;
+            file.seek(position);
+            int value = file.readByte();
+            file.seek(position);
+            file.writeByte(value ^ 0xFF);
+        }
+        journal = open();
+
+        List<Replayed> replayed = replay();
+        assertEquals(1, replayed.size());
+        assertReplayed(replayed.get(0), first, "1", "first", MessageLane.NORMAL);
+        //the next record takes the place of the torn one
+        assertEquals(second, journal.append(OutboundJournal.encode(message("3", "third"), MessageLane.NORMAL)));
+    }
+
+    @Test
+    public void rollsOverToNextSegment() throws IOException {
+        List<Long> sequences = appendUntilSegments(3);
+        reopen();
+
+        List<Replayed> replayed = replay();
+        assertEquals(sequences.size(), replayed.size());
+        for (int i = 0; i < sequences.size(); i++) {
+            assertReplayed(replayed.get(i), sequences.get(i), String.valueOf(i), "text " + i, MessageLane.BULK);
+        }
+        assertEquals(3, segmentFiles().length);
+    }
+
+    @Test
+    public void deletesSegmentsBehindCheckpoint() throws IOException {
+        List<Long> sequences = appendUntilSegments(3);
+        long last = sequences.get(sequences.size() - 1);
+        for (long sequence : sequences.subList(0, sequences.size() - 1)) {
+            journal.acknowledge(sequence);
+        }
+        journal.flush();
+
+        assertEquals(last, readCheckpoint());
+        File[] files = segmentFiles();
+        assertEquals(1, files.length);
+        assertTrue(files[0].getName().contains(String.valueOf(2 * SEGMENT_SIZE)));
+
+        reopen();
+        List<Replayed> replayed = replay();
+        assertEquals(1, replayed.size());
+        assertEquals(last, replayed.get(0).sequence);
+    }
+
+    @Test
+    public void checkpointStopsAtFirstRecordWhichIsNotAcknowledged() throws IOException {
+        long first = journal.append(OutboundJournal.encode(message("1", "first"), MessageLane.NORMAL));
+        long second = journal.append(OutboundJournal.encode(message("2", "second"), MessageLane.NORMAL));
+        long third = journal.append(OutboundJournal.encode(message("3", "third"), MessageLane.NORMAL));
+
+        journal.acknowledge(second);
+        journal.flush();
+        assertEquals(0, readCheckpoint());
+
+        journal.acknowledge(first);
+        journal.flush();
+        assertEquals(third, readCheckpoint());
+
+        reopen();
+        List<Replayed> replayed = replay();
+        assertEquals(1, replayed.size());
+        assertEquals(third, replayed.get(0).sequence);
+
+        //replayed record holds the checkpoint until it is acknowledged
+        journal.flush();
+        assertEquals(third, readCheckpoint());
+        journal.acknowledge(third);
+        journal.flush();
+        assertEquals(third + replayedLength(third), readCheckpoint());
+    }
+
+    private List<Long> appendUntilSegments(int count) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        for (int i = 0; segmentFiles().length < count; i++) {
+            sequences.add(journal.append(OutboundJournal.encode(message(String.valueOf(i), "text " + i), MessageLane.BULK)));
+        }
+        return sequences;
+    }
+
+    private long replayedLength(long sequence) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segmentFiles()[0], "r")) {
+            return HEADER_LENGTH + recordLength(file, sequence);
+        }
+    }
+
+    private static int recordLength(RandomAccessFile file, long sequence) throws IOException {
+        file.seek(sequence % SEGMENT_SIZE);
+        return file.readInt();
+    }
+
+    private long readCheckpoint() throws IOException {
+        byte[] bytes = Files.readAllBytes(new File(directory, "checkpoint").toPath());
+        return bytes.length < Long.BYTES ? 0 : ByteBuffer.wrap(bytes).getLong();
+    }
+
+    private File[] segmentFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".journal"));
+        assertNotNull(files);
+        Arrays.sort(files);
+        return files;
+    }
+
+    private void reopen() throws IOException {
+        journal.close();
+        journal = open();
+    }
+
+    private OutboundJournal open() throws IOException {
+        return new OutboundJournal(directory.getPath(), SEGMENT_SIZE, FLUSH_INTERVAL);
+    }
+
+    private List<Replayed> replay() {
+        List<Replayed> replayed = new ArrayList<>();
+        journal.replay((dataMessage, lane, sequence, appendTime) -> replayed.add(new Replayed(dataMessage, lane, sequence, appendTime)));
+        return replayed;
+    }
+
+    private static void assertReplayed(Replayed replayed, long sequence, String phone, String text, MessageLane lane) {
+        assertEquals(sequence, replayed.sequence);
+        assertEquals(phone, replayed.dataMessage.getPhone());
+        assertEquals(text, replayed.dataMessage.getText());
+        assertEquals(lane, replayed.lane);
+        assertTrue(replayed.appendTime > 0 && replayed.appendTime <= System.currentTimeMillis());
+    }
+
+    private static DataMessage message(String phone, String text) {
+        return new DataMessage("alpha", phone, text, UdhType.udh_8bit, ServiceType.default_type,
+                3600, (byte) 5, (byte) 0, (byte) 1, (byte) 1, LatinEncodingType.GSM_0338, 1, false);
+    }
+
+    private static final class Replayed {
+
+        private final DataMessage dataMessage;
+        private final MessageLane lane;
+        private final long sequence;
+        private final long appendTime;
+
+        private Replayed(DataMessage dataMessage, MessageLane lane, long sequence, long appendTime) {
+            this.dataMessage = dataMessage;
+            this.lane = lane;
+            this.sequence = sequence;
+            this.appendTime = appendTime;
+        }
+    }
+}
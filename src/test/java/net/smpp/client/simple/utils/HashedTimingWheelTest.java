@@ -0,0 +1,104 @@
+package net.smpp.client.simple.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedTimingWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+    //one turn of the wheel is 80 ms
+    private static final int TICKS_PER_WHEEL = 8;
+    //tasks run late by up to one tick, the rest is for a busy machine
+    private static final long LATENESS_MILLIS = TICK_MILLIS + 150;
+
+    private final HashedTimingWheel timingWheel = new HashedTimingWheel("test-timer", TICK_MILLIS, TimeUnit.MILLISECONDS, TICKS_PER_WHEEL);
+
+    @After
+    public void tearDown() {
+        timingWheel.close();
+    }
+
+    @Test
+    public void runsTasksNotBeforeTheirDelay() throws InterruptedException {
+        //delays within the first turn, at the end of it and after several turns
+        long[] delays = {0, 25, 80, 130, 275};
+        long[] elapsed = new long[delays.length];
+        CountDownLatch done = new CountDownLatch(delays.length);
+        long start = System.nanoTime();
+        for (int i = 0; i < delays.length; i++) {
+            int index = i;
+            timingWheel.schedule(() -> {
+                elapsed[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                done.countDown();
+            }, delays[i], TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < delays.length; i++) {
+            String message = String.format("delay %s ms, run after %s ms", delays[i], elapsed[i]);
+            assertTrue(message, elapsed[i] >= delays[i]);
+            assertTrue(message, elapsed[i] <= delays[i] + LATENESS_MILLIS);
+        }
+    }
+
+    @Test
+    public void runsTasksInOrderOfDeadlines() throws InterruptedException {
+        List<Long> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        //all delays hash to the same bucket, tasks of later rounds wait in it
+        for (long delay : new long[]{200, 40, 120}) {
+            timingWheel.schedule(() -> {
+                order.add(delay);
+                done.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(40L, (long) order.get(0));
+        assertEquals(120L, (long) order.get(1));
+        assertEquals(200L, (long) order.get(2));
+    }
+
+    @Test
+    public void countsPendingTasks() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        timingWheel.schedule(done::countDown, 50, TimeUnit.MILLISECONDS);
+        timingWheel.schedule(() -> {
+        }, 10, TimeUnit.SECONDS);
+        assertEquals(2, timingWheel.getPending());
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, timingWheel.getPending());
+    }
+
+    @Test
+    public void keepsRunningAfterFailedTask() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        timingWheel.schedule(() -> {
+            throw new IllegalStateException("failed task");
+        }, 10, TimeUnit.MILLISECONDS);
+        timingWheel.schedule(done::countDown, 30, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dropsTasksAfterClose() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        timingWheel.schedule(done::countDown, 50, TimeUnit.MILLISECONDS);
+        timingWheel.close();
+        timingWheel.schedule(done::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, timingWheel.getPending());
+    }
+}